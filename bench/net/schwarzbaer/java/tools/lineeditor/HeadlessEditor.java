@@ -0,0 +1,152 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import javax.swing.JComponent;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.FormsChangedEvent;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesChangedEvent;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * A {@link LineEditor}, that is driven by synthetic input events and paints into an offscreen image.
+ * All methods have to be called on the event dispatch thread.
+ */
+class HeadlessEditor
+{
+	final LineEditor lineEditor;
+	final EditorView editorView;
+	final BufferedImage image;
+	private final Graphics2D g2;
+	private final com.sun.management.ThreadMXBean threadMXBean;
+
+	HeadlessEditor(Form[] forms, GuideLinesStorage guideLines, int width, int height)
+	{
+		double size = WorkloadGenerator.getAreaSize(forms.length);
+		lineEditor = new LineEditor(new Rectangle2D.Double(0, 0, size, size), new LineEditor.Context() {
+			@Override public void switchOptionsPanel(JComponent panel) {}
+			@Override public boolean canModifyFormsList() { return true; }
+			@Override public void guideLinesChanged(GuideLinesChangedEvent event) {}
+			@Override public void formsChanged(FormsChangedEvent event) {}
+		});
+		editorView = (EditorView) lineEditor.getEditorView();
+		editorView.setSize(width, height);
+		lineEditor.setGuideLines(guideLines);
+		lineEditor.setForms(forms);
+		editorView.reset();
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		g2 = image.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	}
+
+	void dispose()
+	{
+		g2.dispose();
+		lineEditor.dispose();
+	}
+
+	/** Paints a frame into the offscreen image. A pending hover update is run before. @return duration in ns */
+	long paintFrame()
+	{
+		editorView.flushHover();
+		long start = System.nanoTime();
+		editorView.paintCanvas(g2, 0, 0, image.getWidth(), image.getHeight());
+		return System.nanoTime()-start;
+	}
+
+	/** @return bytes allocated by the current thread so far */
+	long getAllocatedBytes()
+	{
+		return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/** @return screen position of a model position */
+	int toScreenX(double x) { return editorView.getViewState().convertPos_AngleToScreen_LongX(x); }
+	int toScreenY(double y) { return editorView.getViewState().convertPos_AngleToScreen_LatY (y); }
+
+	// ---------------------------------------------------------------------------------
+	// input
+
+	void mouseMoved(int x, int y)
+	{
+		editorView.mouseMoved(createMouseEvent(MouseEvent.MOUSE_MOVED, x, y, MouseEvent.NOBUTTON, 0, 0));
+	}
+
+	void mouseClicked(int x, int y, int button, int modifiers)
+	{
+		editorView.mouseClicked(createMouseEvent(MouseEvent.MOUSE_CLICKED, x, y, button, modifiers, 1));
+	}
+
+	void mousePressed(int x, int y, int button, int modifiers)
+	{
+		editorView.mousePressed(createMouseEvent(MouseEvent.MOUSE_PRESSED, x, y, button, modifiers | getDownMask(button), 1));
+	}
+
+	void mouseDragged(int x, int y, int button, int modifiers)
+	{
+		editorView.mouseDragged(createMouseEvent(MouseEvent.MOUSE_DRAGGED, x, y, MouseEvent.NOBUTTON, modifiers | getDownMask(button), 0));
+	}
+
+	void mouseReleased(int x, int y, int button, int modifiers)
+	{
+		editorView.mouseReleased(createMouseEvent(MouseEvent.MOUSE_RELEASED, x, y, button, modifiers, 1));
+	}
+
+	void mouseWheelMoved(int x, int y, int rotation)
+	{
+		mouseWheelMoved(x, y, 0, rotation);
+	}
+
+	void mouseWheelMoved(int x, int y, int modifiers, int rotation)
+	{
+		editorView.mouseWheelMoved(new MouseWheelEvent(editorView, MouseEvent.MOUSE_WHEEL, System.currentTimeMillis(), modifiers, x, y, 0, false, MouseWheelEvent.WHEEL_UNIT_SCROLL, 3, rotation));
+	}
+
+	/** Dispatches a mouse event with the given values to the matching listener method of the editor view. */
+	void mouseEvent(int id, int x, int y, int button, int modifiers, int clickCount)
+	{
+		MouseEvent e = createMouseEvent(id, x, y, button, modifiers, clickCount);
+		switch (id)
+		{
+		case MouseEvent.MOUSE_CLICKED : editorView.mouseClicked (e); break;
+		case MouseEvent.MOUSE_PRESSED : editorView.mousePressed (e); break;
+		case MouseEvent.MOUSE_RELEASED: editorView.mouseReleased(e); break;
+		case MouseEvent.MOUSE_MOVED   : editorView.mouseMoved   (e); break;
+		case MouseEvent.MOUSE_DRAGGED : editorView.mouseDragged (e); break;
+		case MouseEvent.MOUSE_ENTERED : editorView.mouseEntered (e); break;
+		case MouseEvent.MOUSE_EXITED  : editorView.mouseExited  (e); break;
+		}
+	}
+
+	void keyEvent(int id, int keyCode, char keyChar, int modifiers)
+	{
+		editorView.dispatchEvent(new KeyEvent(editorView, id, System.currentTimeMillis(), modifiers, keyCode, keyChar));
+	}
+
+	private MouseEvent createMouseEvent(int id, int x, int y, int button, int modifiers, int clickCount)
+	{
+		return new MouseEvent(editorView, id, System.currentTimeMillis(), modifiers, x, y, clickCount, false, button);
+	}
+
+	private static int getDownMask(int button)
+	{
+		switch (button)
+		{
+		case MouseEvent.BUTTON1: return InputEvent.BUTTON1_DOWN_MASK;
+		case MouseEvent.BUTTON2: return InputEvent.BUTTON2_DOWN_MASK;
+		case MouseEvent.BUTTON3: return InputEvent.BUTTON3_DOWN_MASK;
+		}
+		return 0;
+	}
+}
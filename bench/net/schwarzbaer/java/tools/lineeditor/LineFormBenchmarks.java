@@ -0,0 +1,215 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * Benchmarks of the hot paths of {@link LineForm}, snapping, guide line parsing and rendering on a {@link SyntheticDocument}.
+ * <br><br>
+ * Run with JMH on a classpath containing <code>src</code>, <code>bench</code> and the JavaLib projects, e.g.:
+ * <pre>
+ * java -cp &lt;classpath&gt; org.openjdk.jmh.Main LineFormBenchmarks -p formCount=100000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LineFormBenchmarks
+{
+	private static final int QUERY_COUNT = 1024;
+	private static final double MAX_DIST = 3;
+
+	@Param({ "1000", "100000" })
+	public int formCount;
+
+	@Param({ "8", "256" })
+	public int vertexCount;
+
+	@Param({ "10", "1000" })
+	public int guideLineCount;
+
+	private SyntheticDocument document;
+	private Form[] formsArray;
+	private double[] queryX, queryY;
+	private int query;
+	private SnappingEngine snappingEngine;
+	private BufferedImage image;
+	private Graphics2D g2;
+	private GeometryWorker geometryWorker;
+	private EditorView editorView;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		document = new SyntheticDocument(formCount, vertexCount, guideLineCount);
+		Random rnd = new Random(SyntheticDocument.SEED+1);
+		queryX = new double[QUERY_COUNT];
+		queryY = new double[QUERY_COUNT];
+		for (int i=0; i<QUERY_COUNT; i++)
+		{
+			queryX[i] = rnd.nextDouble()*document.size;
+			queryY[i] = rnd.nextDouble()*document.size;
+		}
+		formsArray = LineForm.convert(document.forms);
+		query = 0;
+		snappingEngine = new SnappingEngine();
+
+		image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_ARGB);
+		g2 = image.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		geometryWorker = new GeometryWorker(() -> CompletableFuture.completedFuture(DocumentSnapshot.EMPTY));
+		editorView = new EditorView(new Rectangle2D.Double(0, 0, document.size, document.size), new EditorViewFeature[0], new EditorView.Context() {
+			@Override public void setValuePanel(JPanel panel) {}
+			@Override public void updateHighlightedForms(HashSet<LineForm<?>> forms) {}
+			@Override public void showsContextMenu(int x, int y) {}
+		}, new EditorStats(() -> null), geometryWorker);
+		editorView.setSize(image.getWidth(), image.getHeight());
+		editorView.setForms(document.forms);
+		editorView.reset();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		g2.dispose();
+		geometryWorker.dispose();
+	}
+
+	private int nextQuery()
+	{
+		query = (query+1) % QUERY_COUNT;
+		return query;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// hit-testing
+
+	@Benchmark
+	public void hitTest_getDistance(Blackhole bh)
+	{
+		int q = nextQuery();
+		for (LineForm<?> form : document.forms)
+			bh.consume(form.getDistance(queryX[q], queryY[q], MAX_DIST));
+	}
+
+	@Benchmark
+	public void hitTest_setNextNewPointOnLine(Blackhole bh)
+	{
+		int q = nextQuery();
+		for (LineForm.PolyLine polyLine : document.polyLines)
+			bh.consume(polyLine.setNextNewPointOnLine(queryX[q], queryY[q], MAX_DIST));
+	}
+
+	@Benchmark
+	public Integer hitTest_findNearestPoint()
+	{
+		int q = nextQuery();
+		LineForm.PolyLine polyLine = document.polyLines[q % document.polyLines.length];
+		return polyLine.findNearestPoint(queryX[q], queryY[q], MAX_DIST);
+	}
+
+	// ---------------------------------------------------------------------------------
+	// snapping
+
+	@Benchmark
+	public Point2D.Double snapping_stickToAll()
+	{
+		int q = nextQuery();
+		return snappingEngine.stickToAll(queryX[q], queryY[q], false, false, MAX_DIST, true, true, false, document.forms, document.guideLines, null, null);
+	}
+
+	@Benchmark
+	public Point2D.Double snapping_stickToCandidates()
+	{
+		int q = nextQuery();
+		if (!snappingEngine.isSessionActive())
+			snappingEngine.startSession(document.forms, document.guideLines, null, null, MAX_DIST, 0, 0, document.size, document.size);
+		return snappingEngine.stickToCandidates(queryX[q], queryY[q], false, false, MAX_DIST, true, true, false);
+	}
+
+	// ---------------------------------------------------------------------------------
+	// transforms & cloning
+
+	@Benchmark
+	public void transform_rotate()
+	{
+		double c = document.size/2;
+		for (LineForm<?> form : document.forms)
+		{
+			form.rotate(c, c,  0.1);
+			form.rotate(c, c, -0.1);
+		}
+	}
+
+	@Benchmark
+	public void transform_translate()
+	{
+		for (LineForm<?> form : document.forms)
+		{
+			form.translate( 1.5,  2.5);
+			form.translate(-1.5, -2.5);
+		}
+	}
+
+	@Benchmark
+	public LineForm<?>[] cloneForms()
+	{
+		LineForm<?>[] clones = new LineForm<?>[document.forms.length];
+		for (int i=0; i<clones.length; i++)
+			clones[i] = LineForm.clone(document.forms[i]);
+		return clones;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// guide lines
+
+	@Benchmark
+	public GuideLinesStorage guideLines_read() throws IOException
+	{
+		GuideLinesStorage storage = new GuideLinesStorage();
+		storage.read(new StringReader(document.guideLinesText));
+		return storage;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// rendering
+
+	@Benchmark
+	public void render_drawForms()
+	{
+		g2.clearRect(0, 0, image.getWidth(), image.getHeight());
+		LineEditor.drawForms(g2, formsArray, editorView.getViewState());
+	}
+}
@@ -0,0 +1,218 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.event.KeyEvent;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.swing.SwingUtilities;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * Replays a session recorded by {@link LineEditor#startSessionRecording(java.io.OutputStream)} against a document on a {@link HeadlessEditor}
+ * and reports frame times, allocations and input latency.
+ * <br><br>
+ * The editor gets the size and the visible area of the recorded editor view, so recorded mouse positions hit the same forms.
+ * Recordings without a header (version 1) start with the first recorded view instead.
+ * Later recorded views are only compared with the replayed view.
+ * <br><br>
+ * Each input event is dispatched on the event dispatch thread and followed by a painted frame.
+ * In realtime mode (default) the recorded time between events is kept, so throttling and coalescing behave like in the recorded session.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * java -Djava.awt.headless=true -cp &lt;classpath&gt; net.schwarzbaer.java.tools.lineeditor.SessionPlayer
+ *      &lt;document file&gt; &lt;session file&gt; [realtime=true] [width=&lt;recorded&gt;] [height=&lt;recorded&gt;] [maxFrameMillis=...]
+ * </pre>
+ * Exits with status 1, if the p95 frame time exceeds <code>maxFrameMillis</code>.
+ */
+class SessionPlayer
+{
+	private final HeadlessEditor editor;
+	private final boolean realtime;
+	private final ArrayList<Long> frameNanos;
+	private long allocatedBytes;
+	private int inputEvents;
+	private int menuActions;
+	private int unknownMenuActions;
+	private int viewMismatches;
+	private boolean isViewSet;
+
+	/**
+	 * @param isViewSet <code>true</code>, if the editor already shows the recorded start view,
+	 *                  otherwise the first recorded view is set before any view is compared
+	 */
+	SessionPlayer(HeadlessEditor editor, boolean realtime, boolean isViewSet)
+	{
+		this.editor = editor;
+		this.realtime = realtime;
+		this.isViewSet = isViewSet;
+		frameNanos = new ArrayList<>();
+		allocatedBytes = 0;
+		inputEvents = 0;
+		menuActions = 0;
+		unknownMenuActions = 0;
+		viewMismatches = 0;
+	}
+
+	void play(SessionRecorder.Entry[] entries) throws Exception
+	{
+		long startNanos = System.nanoTime();
+		for (SessionRecorder.Entry entry : entries)
+		{
+			if (realtime)
+			{
+				long waitNanos = entry.timeMicros()*1000 - (System.nanoTime()-startNanos);
+				if (waitNanos>0) Thread.sleep(waitNanos/1000000, (int) (waitNanos%1000000));
+			}
+			// separate EDT tasks, so timers of the editor (e.g. hover throttling) can run in between
+			SwingUtilities.invokeAndWait(() -> replay(entry));
+		}
+	}
+
+	private void replay(SessionRecorder.Entry entry)
+	{
+		long bytesStart = editor.getAllocatedBytes();
+		boolean paint = true;
+		if (entry instanceof SessionRecorder.Mouse m)
+		{
+			editor.mouseEvent(m.id(), m.x(), m.y(), m.button(), m.modifiersEx(), m.clickCount());
+			inputEvents++;
+		}
+		else if (entry instanceof SessionRecorder.Wheel w)
+		{
+			editor.mouseWheelMoved(w.x(), w.y(), w.modifiersEx(), w.rotation());
+			inputEvents++;
+		}
+		else if (entry instanceof SessionRecorder.Key k)
+		{
+			editor.keyEvent(k.id(), k.id()==KeyEvent.KEY_TYPED ? KeyEvent.VK_UNDEFINED : k.keyCode(), k.keyChar(), k.modifiersEx());
+			inputEvents++;
+		}
+		else if (entry instanceof SessionRecorder.MenuAction a)
+		{
+			if (!editor.lineEditor.performContextMenuAction(a.text(), a.selected()))
+			{
+				unknownMenuActions++;
+				System.err.printf("Context menu item \"%s\" not found%n", a.text());
+			}
+			menuActions++;
+		}
+		else if (entry instanceof SessionRecorder.View v && !isViewSet)
+		{
+			editor.editorView.setViewRectangle(new Rectangle2D.Double(v.x(), v.y(), v.width(), v.height()));
+			isViewSet = true;
+		}
+		else if (entry instanceof SessionRecorder.View v)
+		{
+			Rectangle2D view = editor.editorView.getViewRectangle();
+			double tolerance = Math.abs(v.width())/100;
+			if (Math.abs(view.getX()-v.x())>tolerance || Math.abs(view.getY()-v.y())>tolerance || Math.abs(view.getWidth()-v.width())>tolerance)
+				viewMismatches++;
+			paint = false;
+		}
+		if (paint)
+			frameNanos.add(editor.paintFrame());
+		allocatedBytes += editor.getAllocatedBytes()-bytesStart;
+	}
+
+	void printReport()
+	{
+		long[] frames = frameNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+		System.out.printf(Locale.ENGLISH, "%d input events, %d context menu actions (%d not found), %d view mismatches%n", inputEvents, menuActions, unknownMenuActions, viewMismatches);
+		System.out.printf(Locale.ENGLISH, "frames:  %d, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+			frames.length, percentile(frames, 50)/1e6, percentile(frames, 95)/1e6, percentile(frames, 99)/1e6, percentile(frames, 100)/1e6);
+		System.out.printf(Locale.ENGLISH, "alloc:   %,d bytes total, %,d bytes per event%n", allocatedBytes, frames.length==0 ? 0 : allocatedBytes/frames.length);
+		for (LatencyTracer.Stage stage : LatencyTracer.Stage.values())
+		{
+			LatencyTracer.Statistics stats = editor.lineEditor.getLatencyTracer().getStatistics(stage);
+			System.out.printf(Locale.ENGLISH, "latency %-8s: %d events, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms (coalesced %d, dropped %d)%n",
+				stage, stats.count(), stats.p50Millis(), stats.p95Millis(), stats.p99Millis(), stats.maxMillis(), stats.coalesced(), stats.dropped());
+		}
+		FrameTimings timings = editor.lineEditor.getFrameTimings();
+		for (FrameTimings.Phase phase : FrameTimings.Phase.values())
+		{
+			FrameTimings.Histogram histogram = timings.getPhaseHistogram(phase);
+			System.out.printf(Locale.ENGLISH, "phase   %-13s: p95 < %.3f ms, max %.3f ms%n", phase, histogram.getPercentileNanos(95)/1e6, histogram.getMaxNanos()/1e6);
+		}
+	}
+
+	long getFramePercentileNanos(double p)
+	{
+		long[] frames = frameNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+		return percentile(frames, p);
+	}
+
+	private static long percentile(long[] sorted, double p)
+	{
+		if (sorted.length==0) return 0;
+		return sorted[Math.max(0, Math.min(sorted.length-1, (int) Math.ceil(sorted.length*p/100)-1))];
+	}
+
+	/** @param header <code>null</code>, if the recording has no header */
+	record Session(SessionRecorder.Header header, SessionRecorder.Entry[] entries) {}
+
+	static Session readSession(Path file) throws IOException
+	{
+		ArrayList<SessionRecorder.Entry> entries = new ArrayList<>();
+		SessionRecorder.Header header;
+		try (InputStream in = Files.newInputStream(file))
+		{
+			header = SessionRecorder.read(in, entries::add);
+		}
+		return new Session(header, entries.toArray(SessionRecorder.Entry[]::new));
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length<2)
+		{
+			System.err.println("Usage: SessionPlayer <document file> <session file> [realtime=true] [width=<recorded>] [height=<recorded>] [maxFrameMillis=...]");
+			System.exit(2);
+		}
+		StressHarness.Arguments arguments = new StressHarness.Arguments(Arrays.copyOfRange(args, 2, args.length));
+		BinaryDocument document = BinaryDocument.open(Path.of(args[0]));
+		Form[] forms = document.getForms();
+		GuideLinesStorage guideLines = document.getGuideLines();
+		Session session = readSession(Path.of(args[1]));
+		SessionRecorder.Header header = session.header();
+		SessionRecorder.Entry[] entries = session.entries();
+		boolean realtime = Boolean.parseBoolean(arguments.getString("realtime", "true"));
+		int width  = arguments.getInt("width" , header==null || header.width ()<=0 ? 1600 : header.width ());
+		int height = arguments.getInt("height", header==null || header.height()<=0 ? 1200 : header.height());
+		double maxFrameMillis = arguments.getDouble("maxFrameMillis", Double.POSITIVE_INFINITY);
+
+		HeadlessEditor[] editor = new HeadlessEditor[1];
+		SwingUtilities.invokeAndWait(() -> {
+			editor[0] = new HeadlessEditor(forms, guideLines, width, height);
+			editor[0].lineEditor.getLatencyTracer().setEnabled(true);
+			editor[0].lineEditor.getFrameTimings().setEnabled(true);
+			if (header!=null)
+				editor[0].editorView.setViewRectangle(new Rectangle2D.Double(header.viewX(), header.viewY(), header.viewWidth(), header.viewHeight()));
+			editor[0].paintFrame();
+		});
+		System.out.printf(Locale.ENGLISH, "%d forms, %d session entries, %.1f s recorded%n", forms.length, entries.length, entries.length==0 ? 0 : entries[entries.length-1].timeMicros()/1e6);
+
+		SessionPlayer player = new SessionPlayer(editor[0], realtime, header!=null);
+		player.play(entries);
+		SwingUtilities.invokeAndWait(() -> {
+			player.printReport();
+			editor[0].dispose();
+		});
+
+		long p95 = player.getFramePercentileNanos(95);
+		if (p95>maxFrameMillis*1e6)
+		{
+			System.err.printf(Locale.ENGLISH, "p95 frame time %.2f ms exceeds budget of %.2f ms%n", p95/1e6, maxFrameMillis);
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+}
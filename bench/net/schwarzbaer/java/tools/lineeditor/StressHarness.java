@@ -0,0 +1,242 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.SwingUtilities;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+
+/**
+ * Drives a {@link HeadlessEditor} with a generated document through scripted pans, zooms, hovers and drags
+ * and checks the time and allocations of each step (input event + painted frame) against budgets.
+ * Each step runs as its own task on the event dispatch thread (like {@link SessionPlayer#play(SessionRecorder.Entry[])} does),
+ * so results of the {@link GeometryWorker} and timers are processed between the steps like in the editor.
+ * Before that, the document is imported in batches into an {@link IntersectionIndex} (like {@link LineEditor#startImport()} does)
+ * and the size of its grid is compared with the grid of an index, that got all forms at once.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * java -Djava.awt.headless=true -cp &lt;classpath&gt; net.schwarzbaer.java.tools.lineeditor.StressHarness
+ *      [forms=100000] [guideLines=100] [arcs=0.2] [polyLineLength=16] [clusters=20] [steps=200]
+ *      [maxStepMillis=100] [maxStepBytes=50000000] [importBatch=10000]
+ * </pre>
+ * Exits with status 1, if a budget is exceeded or the grid of the imported index is more than 4 times larger.
+ */
+class StressHarness
+{
+	private static final int WIDTH = 1600, HEIGHT = 1200;
+
+	private final HeadlessEditor editor;
+	private final Form[] forms;
+	private final int steps;
+	private final Random rnd;
+
+	StressHarness(Form[] forms, HeadlessEditor editor, int steps)
+	{
+		this.forms = forms;
+		this.editor = editor;
+		this.steps = steps;
+		rnd = new Random(1);
+	}
+
+	/** Time (ns) and allocations (bytes) of each step of one scenario. */
+	record ScenarioResult(String name, long[] nanos, long[] bytes)
+	{
+		long percentile(long[] values, double p)
+		{
+			long[] sorted = values.clone();
+			Arrays.sort(sorted);
+			return sorted.length==0 ? 0 : sorted[Math.max(0, (int) Math.ceil(sorted.length*p/100)-1)];
+		}
+
+		String format()
+		{
+			return String.format(Locale.ENGLISH, "%-8s %5d steps   time p50 %8.2f ms, p95 %8.2f ms, max %8.2f ms   alloc p50 %,12d B, max %,12d B",
+				name, nanos.length,
+				percentile(nanos, 50)/1e6, percentile(nanos, 95)/1e6, percentile(nanos, 100)/1e6,
+				percentile(bytes, 50), percentile(bytes, 100));
+		}
+	}
+
+	private interface Step { void run(int i); }
+
+	/** Has to be called outside of the event dispatch thread. */
+	private ScenarioResult runScenario(String name, Step step) throws Exception
+	{
+		long[] nanos = new long[steps];
+		long[] bytes = new long[steps];
+		for (int i=0; i<steps; i++)
+		{
+			int index = i;
+			SwingUtilities.invokeAndWait(() -> {
+				long bytesStart = editor.getAllocatedBytes();
+				long start = System.nanoTime();
+				step.run(index);
+				editor.paintFrame();
+				nanos[index] = System.nanoTime()-start;
+				bytes[index] = editor.getAllocatedBytes()-bytesStart;
+			});
+		}
+		return new ScenarioResult(name, nanos, bytes);
+	}
+
+	/** Has to be called outside of the event dispatch thread. */
+	ScenarioResult[] run() throws Exception
+	{
+		int cx = WIDTH/2, cy = HEIGHT/2;
+		ScenarioResult pan = runScenario("pan", i -> {
+			if (i==0) editor.mousePressed(cx, cy, MouseEvent.BUTTON1, 0);
+			editor.mouseDragged(cx + (int) (300*Math.sin(i*0.1)), cy + (int) (200*Math.cos(i*0.13)), MouseEvent.BUTTON1, 0);
+			if (i==steps-1) editor.mouseReleased(cx, cy, MouseEvent.BUTTON1, 0);
+		});
+		ScenarioResult zoom = runScenario("zoom", i -> {
+			editor.mouseWheelMoved(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT), (i/10)%2==0 ? -1 : 1);
+		});
+		ScenarioResult hover = runScenario("hover", i -> {
+			editor.mouseMoved(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT));
+		});
+
+		Form.PolyLine.Point[] point = new Form.PolyLine.Point[1];
+		SwingUtilities.invokeAndWait(() -> point[0] = findVisiblePolyLinePoint());
+		ScenarioResult drag;
+		if (point[0]==null)
+			drag = new ScenarioResult("drag", new long[0], new long[0]);
+		else
+		{
+			int[] screenPos = new int[2];
+			SwingUtilities.invokeAndWait(() -> {
+				screenPos[0] = editor.toScreenX(point[0].x);
+				screenPos[1] = editor.toScreenY(point[0].y);
+				editor.mouseClicked(screenPos[0], screenPos[1], MouseEvent.BUTTON1, 0); // selects the form
+			});
+			int px = screenPos[0], py = screenPos[1];
+			drag = runScenario("drag", i -> {
+				if (i==0) editor.mousePressed(px, py, MouseEvent.BUTTON1, 0);
+				editor.mouseDragged(px + (int) (100*Math.sin(i*0.1)), py + (int) (100*Math.cos(i*0.1)), MouseEvent.BUTTON1, 0);
+				if (i==steps-1) editor.mouseReleased(px, py, MouseEvent.BUTTON1, 0);
+			});
+		}
+		return new ScenarioResult[] { pan, zoom, hover, drag };
+	}
+
+	private Form.PolyLine.Point findVisiblePolyLinePoint()
+	{
+		for (Form form : forms)
+			if (form instanceof Form.PolyLine)
+			{
+				Form.PolyLine.Point p = ((Form.PolyLine) form).points.get(0);
+				int x = editor.toScreenX(p.x), y = editor.toScreenY(p.y);
+				if (0<=x && x<WIDTH && 0<=y && y<HEIGHT) return p;
+			}
+		return null;
+	}
+
+	/**
+	 * Imports <code>forms</code> in batches into an {@link IntersectionIndex}, that starts with an empty list.
+	 * @return <code>false</code>, if its oversized primitives or cell entries exceed 4 times the values of an index, that got all forms at once
+	 */
+	static boolean checkImportGrid(Form[] forms, int batchSize) throws Exception
+	{
+		LineForm<?>[] lineForms = LineForm.convert(forms);
+		GeometryWorker worker = new GeometryWorker(() -> CompletableFuture.completedFuture(DocumentSnapshot.EMPTY));
+		IntersectionIndex imported = new IntersectionIndex(worker);
+		IntersectionIndex complete = new IntersectionIndex(worker);
+		long startNanos = System.nanoTime();
+		SwingUtilities.invokeAndWait(() -> imported.setForms(new LineForm<?>[0]));
+		for (int i=0; i<lineForms.length; i+=batchSize)
+		{
+			LineForm<?>[] list = Arrays.copyOf(lineForms, Math.min(i+batchSize, lineForms.length));
+			int oldLength = i;
+			SwingUtilities.invokeAndWait(() -> imported.addForms(list, oldLength));
+		}
+		waitFor(worker);
+		long importNanos = System.nanoTime()-startNanos;
+		SwingUtilities.invokeAndWait(() -> complete.setForms(lineForms));
+		waitFor(worker);
+		worker.dispose();
+
+		IntersectionIndex.GridStatistics a = imported.getGridStatistics();
+		IntersectionIndex.GridStatistics b = complete.getGridStatistics();
+		System.out.printf(Locale.ENGLISH, "import   %d batches in %.2f ms   grid: %d primitives, %d oversized, %,d cell entries, cell size %.3f (all at once: %d oversized, %,d cell entries, cell size %.3f)%n",
+			(lineForms.length+batchSize-1)/batchSize, importNanos/1e6, a.primitives(), a.oversized(), a.cellEntries(), a.cellSize(), b.oversized(), b.cellEntries(), b.cellSize());
+		boolean ok = a.primitives()==b.primitives() && a.oversized()<=4*b.oversized()+4 && a.cellEntries()<=4*b.cellEntries();
+		if (!ok) System.err.println("import: grid of the imported index is much larger than the grid of the complete index");
+		return ok;
+	}
+
+	private static void waitFor(GeometryWorker worker) throws InterruptedException
+	{
+		CountDownLatch done = new CountDownLatch(1);
+		worker.execute(done::countDown);
+		done.await();
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Arguments arguments = new Arguments(args);
+		int formCount = arguments.getInt("forms", 100000);
+		int steps = arguments.getInt("steps", 200);
+		long maxStepNanos = (long) (arguments.getDouble("maxStepMillis", 100)*1e6);
+		long maxStepBytes = (long) arguments.getDouble("maxStepBytes", 50e6);
+
+		WorkloadGenerator generator = new WorkloadGenerator(arguments.getInt("seed", 42))
+			.setArcDensity(arguments.getDouble("arcs", 0.2))
+			.setPolyLineLength(arguments.getInt("polyLineLength", 16), 1, 100000)
+			.setClusters(arguments.getInt("clusters", 20), 0.05);
+		Form[] forms = generator.generateForms(formCount);
+
+		boolean failed = false;
+		if (!checkImportGrid(forms, arguments.getInt("importBatch", 10000))) failed = true;
+		HeadlessEditor[] editor = new HeadlessEditor[1];
+		SwingUtilities.invokeAndWait(() -> {
+			editor[0] = new HeadlessEditor(forms, generator.generateGuideLines(arguments.getInt("guideLines", 100), formCount), WIDTH, HEIGHT);
+			System.out.printf(Locale.ENGLISH, "%d forms, first frame %.2f ms%n", formCount, editor[0].paintFrame()/1e6);
+		});
+		for (ScenarioResult result : new StressHarness(forms, editor[0], steps).run())
+		{
+			System.out.println(result.format());
+			long p95Nanos = result.percentile(result.nanos(), 95);
+			long maxBytes = result.percentile(result.bytes(), 100);
+			if (p95Nanos>maxStepNanos) { failed = true; System.err.printf(Locale.ENGLISH, "%s: p95 step time %.2f ms exceeds budget of %.2f ms%n", result.name(), p95Nanos/1e6, maxStepNanos/1e6); }
+			if (maxBytes>maxStepBytes) { failed = true; System.err.printf(Locale.ENGLISH, "%s: allocation of %,d bytes per step exceeds budget of %,d bytes%n", result.name(), maxBytes, maxStepBytes); }
+		}
+		SwingUtilities.invokeAndWait(() -> editor[0].dispose());
+		System.exit(failed ? 1 : 0);
+	}
+
+	/** Arguments in the form <code>name=value</code>. */
+	static class Arguments
+	{
+		private final String[] args;
+
+		Arguments(String[] args)
+		{
+			this.args = args;
+		}
+
+		String getString(String name, String defaultValue)
+		{
+			for (String arg : args)
+				if (arg.startsWith(name+"="))
+					return arg.substring(name.length()+1);
+			return defaultValue;
+		}
+
+		int getInt(String name, int defaultValue)
+		{
+			String value = getString(name, null);
+			return value==null ? defaultValue : Integer.parseInt(value);
+		}
+
+		double getDouble(String name, double defaultValue)
+		{
+			String value = getString(name, null);
+			return value==null ? defaultValue : Double.parseDouble(value);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.io.StringWriter;
+
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * Reproducible random document for benchmarks, generated by {@link WorkloadGenerator}.
+ * A third of the forms are polylines with <code>vertexCount</code> points, the others are lines and arcs.
+ */
+class SyntheticDocument
+{
+	static final long SEED = 0x5eedL;
+
+	final LineForm<?>[] forms;
+	final LineForm.PolyLine[] polyLines;
+	final GuideLinesStorage guideLines;
+	final String guideLinesText;
+	final double size;
+
+	SyntheticDocument(int formCount, int vertexCount, int guideLineCount)
+	{
+		int length = Math.max(2, vertexCount);
+		WorkloadGenerator generator = new WorkloadGenerator(SEED)
+			.setFormMix(1/3.0, 1/3.0)
+			.setPolyLineLength(length, 0, length);
+		forms = LineForm.convert(generator.generateForms(formCount));
+		size = WorkloadGenerator.getAreaSize(formCount);
+
+		int polyLineCount = 0;
+		for (LineForm<?> form : forms)
+			if (form instanceof LineForm.PolyLine)
+				polyLineCount++;
+		polyLines = new LineForm.PolyLine[polyLineCount];
+		for (int i=0, p=0; i<formCount; i++)
+			if (forms[i] instanceof LineForm.PolyLine)
+				polyLines[p++] = (LineForm.PolyLine) forms[i];
+
+		guideLines = generator.generateGuideLines(guideLineCount, formCount);
+		StringWriter out = new StringWriter();
+		try { guideLines.write(out); }
+		catch (java.io.IOException e) { throw new IllegalStateException(e); }
+		guideLinesText = out.toString();
+	}
+}
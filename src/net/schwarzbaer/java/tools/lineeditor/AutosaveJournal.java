@@ -0,0 +1,301 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.FormsChangedEvent;
+import net.schwarzbaer.java.tools.lineeditor.LineForm.FormType;
+
+/**
+ * Saves the forms list of a {@link LineEditor} in the background as a snapshot file ({@link BinaryDocument} format) and a journal of changes.
+ * Both files carry the same generation number. A journal with another generation than the snapshot is ignored,
+ * so a crash during compaction never applies a journal twice.
+ * <br><br>
+ * The journal follows the {@link DocumentSnapshot}s of the editor, so nothing is copied on the event dispatch thread.
+ * Writing the journal and compacting it into a new snapshot happen on a background thread.
+ * A new list set by {@link LineEditor#setForms(Form[])} is written as a new snapshot file.
+ * <br><br>
+ * Usage: call {@link #start()} once and {@link #close()} at the end.
+ * Saved forms can be loaded with {@link #recover(Path, Path, Form.Factory)}.
+ */
+public class AutosaveJournal implements Closeable
+{
+	private static final byte OP_REMOVE = 1;
+	private static final byte OP_SET    = 2;
+
+	private final LineEditor editor;
+	private final Path snapshotFile;
+	private final Path journalFile;
+	private final int compactionThreshold;
+	private final ExecutorService executor;
+	private final LineEditor.SnapshotListener snapshotListener;
+
+	// only accessed by background thread
+	private DocumentSnapshot savedForms;
+	private int journalRecords;
+	private long generation;
+	private volatile IOException lastError;
+
+	/**
+	 * @param compactionThreshold number of journal records, after which the journal is compacted into a new snapshot
+	 */
+	public AutosaveJournal(LineEditor editor, Path snapshotFile, Path journalFile, int compactionThreshold)
+	{
+		this.editor = editor;
+		this.snapshotFile = snapshotFile;
+		this.journalFile = journalFile;
+		this.compactionThreshold = Math.max(1, compactionThreshold);
+		snapshotListener = this::snapshotChanged;
+		savedForms = DocumentSnapshot.EMPTY;
+		journalRecords = 0;
+		generation = 0;
+		lastError = null;
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "LineEditor.AutosaveJournal");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private record FormValues(FormType type, double[] values)
+	{
+		Form createForm(Form.Factory factory)
+		{
+			switch (type)
+			{
+			case PolyLine: return factory.createPolyLine(values);
+			case Line    : return factory.createLine    (values);
+			case Arc     : return factory.createArc     (values);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a new snapshot of the current forms of the editor, starts a new journal
+	 * and adds all following changes to it. Call it on the event dispatch thread.
+	 */
+	public void start()
+	{
+		editor.addSnapshotListener(snapshotListener);
+		snapshotChanged(null, editor.getSnapshotAsync());
+	}
+
+	private void snapshotChanged(FormsChangedEvent.Delta delta, CompletableFuture<DocumentSnapshot> snapshot)
+	{
+		if (delta==null)
+		{
+			executor.execute(() -> {
+				savedForms = snapshot.join();
+				compact();
+			});
+			return;
+		}
+		if (delta.isEmpty()) return;
+
+		// the forms of the delta are live forms, only their indices are passed to the background thread
+		int[] removedIndices = delta.removedIndices().clone();
+		int[] setIndices = new int[delta.added().length+delta.moved().length+delta.modified().length];
+		int i=0;
+		for (FormsChangedEvent.IndexedForm f : delta.added   ()) setIndices[i++] = f.index();
+		for (FormsChangedEvent.IndexedForm f : delta.moved   ()) setIndices[i++] = f.index();
+		for (FormsChangedEvent.IndexedForm f : delta.modified()) setIndices[i++] = f.index();
+
+		executor.execute(() -> appendToJournal(snapshot.join(), removedIndices, setIndices));
+	}
+
+	/**
+	 * @return the last error, that occurred while writing, or <code>null</code>
+	 */
+	public IOException getLastError()
+	{
+		return lastError;
+	}
+
+	/**
+	 * Writes all pending changes and stops the background thread.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		editor.removeSnapshotListener(snapshotListener);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (lastError!=null) throw lastError;
+	}
+
+	private void appendToJournal(DocumentSnapshot snapshot, int[] removedIndices, int[] setIndices)
+	{
+		savedForms = snapshot;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes))
+		{
+			if (removedIndices.length>0)
+			{
+				out.writeByte(OP_REMOVE);
+				out.writeInt(removedIndices.length);
+				for (int index : removedIndices)
+					out.writeInt(index);
+			}
+			for (int index : setIndices)
+			{
+				out.writeByte(OP_SET);
+				out.writeInt(index);
+				BinaryDocument.writeFormRecord(out, snapshot.get(index));
+			}
+		}
+		catch (IOException e) { /* ByteArrayOutputStream doesn't throw IOExceptions */ }
+
+		try (OutputStream out = Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			 DataOutputStream dout = new DataOutputStream(out))
+		{
+			// each block is written completely or is ignored by recover()
+			dout.writeInt(bytes.size());
+			bytes.writeTo(dout);
+		}
+		catch (IOException e)
+		{
+			handleError(e);
+			return;
+		}
+
+		journalRecords += removedIndices.length + setIndices.length;
+		if (journalRecords>=compactionThreshold)
+			compact();
+	}
+
+	private void compact()
+	{
+		try
+		{
+			generation = Math.max(generation+1, System.currentTimeMillis());
+			Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName()+".tmp");
+			BinaryDocument.write(tempFile, savedForms.toArray(), null, generation);
+			try {
+				Files.move(tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(journalFile))) {
+				out.writeLong(generation);
+			}
+			journalRecords = 0;
+		}
+		catch (IOException e)
+		{
+			handleError(e);
+		}
+	}
+
+	private void handleError(IOException e)
+	{
+		lastError = e;
+		System.err.printf("AutosaveJournal: %s%n", e.getMessage());
+	}
+
+	private static void applyRemove(ArrayList<Form> forms, int[] removedIndices)
+	{
+		for (int i=removedIndices.length-1; i>=0; i--)
+			forms.remove(removedIndices[i]);
+	}
+
+	private static void applySet(ArrayList<Form> forms, int index, Form form)
+	{
+		while (forms.size()<=index) forms.add(null);
+		forms.set(index, form);
+	}
+
+	/**
+	 * Loads the snapshot and applies all complete blocks of the journal.
+	 */
+	public static Form[] recover(Path snapshotFile, Path journalFile, Form.Factory factory) throws IOException
+	{
+		ArrayList<Form> forms = new ArrayList<>();
+		if (!Files.exists(snapshotFile))
+			return new Form[0];
+		
+		BinaryDocument snapshot = BinaryDocument.open(snapshotFile, factory);
+		forms.addAll(Arrays.asList(snapshot.getForms()));
+
+		if (Files.exists(journalFile))
+			try (InputStream in = Files.newInputStream(journalFile);
+				 DataInputStream din = new DataInputStream(new BufferedInputStream(in)))
+			{
+				try {
+					if (din.readLong()!=snapshot.getGeneration())
+						return forms.toArray(new Form[forms.size()]);
+				} catch (EOFException e) {
+					return forms.toArray(new Form[forms.size()]);
+				}
+				
+				while (true)
+				{
+					byte[] block;
+					try {
+						block = new byte[din.readInt()];
+						din.readFully(block);
+					} catch (EOFException e) {
+						break; // incomplete block at the end
+					}
+					applyBlock(forms, block, factory);
+				}
+			}
+
+		forms.removeIf(f -> f==null);
+		return forms.toArray(new Form[forms.size()]);
+	}
+
+	private static void applyBlock(ArrayList<Form> forms, byte[] block, Form.Factory factory) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+		FormType[] types = FormType.values();
+		while (in.available()>0)
+		{
+			byte op = in.readByte();
+			switch (op)
+			{
+			case OP_REMOVE: {
+				int[] indices = new int[in.readInt()];
+				for (int i=0; i<indices.length; i++) indices[i] = in.readInt();
+				applyRemove(forms, indices);
+			} break;
+			case OP_SET: {
+				int index = in.readInt();
+				int type = in.readByte();
+				double[] values = new double[in.readInt()];
+				for (int i=0; i<values.length; i++) values[i] = in.readDouble();
+				if (type<0 || type>=types.length)
+					throw new IOException(String.format("Unknown form type %d in journal", type));
+				applySet(forms, index, new FormValues(types[type], values).createForm(factory));
+			} break;
+			default:
+				throw new IOException(String.format("Unknown journal operation %d", op));
+			}
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * Runs a pipeline of operations over many documents in parallel.
+ * <br><br>
+ * Each document is loaded, processed by all operations and then released by one task.
+ * At most <code>maxParallelism</code> documents are in progress at the same time.
+ * The source is only read, when a task slot is free, so a slow pipeline slows down the reading of documents (backpressure).
+ * Tasks run on virtual threads, if the runtime supports them (Java 21+), otherwise on a fixed thread pool.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * BatchProcessor processor = new BatchProcessor(64);
+ * BatchProcessor.Summary summary = processor.process(
+ *     files.stream().map(BatchProcessor::load),
+ *     result -&gt; { if (result.error()!=null) log(result) },
+ *     BatchProcessor.simplify(0.1),
+ *     BatchProcessor.export(doc -&gt; outputFolder.resolve(doc.name()))
+ * );
+ * </pre>
+ */
+public class BatchProcessor
+{
+	private final int maxParallelism;
+
+	public BatchProcessor(int maxParallelism)
+	{
+		if (maxParallelism<1) throw new IllegalArgumentException("maxParallelism must be at least 1");
+		this.maxParallelism = maxParallelism;
+	}
+
+	/**
+	 * A document of the batch. Operations can modify the forms in place or return a new document.
+	 * The built-in operations only change forms created by {@link LineEditor#createFormFactory()}.
+	 */
+	public record Document(String name, Form[] forms, GuideLinesStorage guideLines) {}
+
+	public interface Operation
+	{
+		Document apply(Document document) throws Exception;
+	}
+
+	/**
+	 * Result of one document. <code>document</code> is the output of the last successful operation (or <code>null</code>, if loading failed).
+	 */
+	public record Result(Document document, Throwable error) {}
+
+	public interface ResultListener
+	{
+		/** Is called by the task of the document, so it has to be thread safe. */
+		void documentFinished(Result result);
+	}
+
+	public record Summary(int succeeded, int failed) {}
+
+	/**
+	 * Processes all documents of <code>source</code> and waits until all are finished.
+	 */
+	public Summary process(Stream<? extends Callable<Document>> source, ResultListener listener, Operation... pipeline) throws InterruptedException
+	{
+		return process(source.iterator(), listener, pipeline);
+	}
+
+	/**
+	 * Processes all documents of <code>source</code> and waits until all are finished.
+	 */
+	public Summary process(Iterator<? extends Callable<Document>> source, ResultListener listener, Operation... pipeline) throws InterruptedException
+	{
+		Operation[] operations = pipeline.clone();
+		Semaphore slots = new Semaphore(maxParallelism);
+		AtomicInteger succeeded = new AtomicInteger(0);
+		AtomicInteger failed = new AtomicInteger(0);
+
+		ExecutorService executor = createExecutor();
+		try
+		{
+			while (source.hasNext())
+			{
+				Callable<Document> loader = source.next();
+				slots.acquire();
+				try
+				{
+					executor.execute(() -> {
+						try
+						{
+							Result result = processDocument(loader, operations);
+							(result.error()==null ? succeeded : failed).incrementAndGet();
+							if (listener!=null) listener.documentFinished(result);
+						}
+						finally
+						{
+							slots.release();
+						}
+					});
+				}
+				catch (RuntimeException e)
+				{
+					slots.release();
+					throw e;
+				}
+			}
+			slots.acquire(maxParallelism); // wait for all running tasks
+			slots.release(maxParallelism);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		return new Summary(succeeded.get(), failed.get());
+	}
+
+	private static Result processDocument(Callable<Document> loader, Operation[] operations)
+	{
+		Document document = null;
+		try
+		{
+			document = loader.call();
+			for (Operation operation : operations)
+			{
+				Document result = operation.apply(document);
+				if (result!=null) document = result;
+			}
+			return new Result(document, null);
+		}
+		catch (Throwable e) // also errors of an operation (e.g. OutOfMemoryError), so every document gets a Result
+		{
+			return new Result(document, e);
+		}
+	}
+
+	private ExecutorService createExecutor()
+	{
+		try
+		{
+			// Java 21+
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			int threadCount = Math.min(maxParallelism, Runtime.getRuntime().availableProcessors()*2);
+			return Executors.newFixedThreadPool(threadCount, r -> {
+				Thread thread = new Thread(r, "LineEditor.BatchProcessor");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/** @return a loader, that reads a file in {@link BinaryDocument} format */
+	public static Callable<Document> load(Path file)
+	{
+		return () -> {
+			BinaryDocument doc = BinaryDocument.open(file);
+			return new Document(file.getFileName().toString(), doc.getForms(), doc.getGuideLines());
+		};
+	}
+
+	/** @return an operation, that writes the document in {@link BinaryDocument} format to the file given by <code>getTargetFile</code> */
+	public static Operation export(Function<Document, Path> getTargetFile)
+	{
+		return document -> {
+			Path file = getTargetFile.apply(document);
+			if (file==null) throw new IOException(String.format("No target file for document \"%s\"", document.name()));
+			BinaryDocument.write(file, document.forms(), document.guideLines());
+			return document;
+		};
+	}
+
+	public static Operation translate(double x, double y)
+	{
+		return document -> forEachForm(document, form -> form.translate(x, y));
+	}
+
+	public static Operation rotate(double centerX, double centerY, double angle)
+	{
+		return document -> forEachForm(document, form -> form.rotate(centerX, centerY, angle));
+	}
+
+	/** @return an operation, that mirrors all forms at the vertical line x = <code>pos</code> */
+	public static Operation mirrorLeftRight(double pos)
+	{
+		return document -> forEachForm(document, form -> form.mirror(LineForm.MirrorDirection.Horizontal_LeftRight, pos));
+	}
+
+	/** @return an operation, that mirrors all forms at the horizontal line y = <code>pos</code> */
+	public static Operation mirrorTopBottom(double pos)
+	{
+		return document -> forEachForm(document, form -> form.mirror(LineForm.MirrorDirection.Vertical_TopBottom, pos));
+	}
+
+	/**
+	 * @return an operation, that removes points of polylines, that are closer than <code>tolerance</code> to the simplified line (Douglas-Peucker)
+	 */
+	public static Operation simplify(double tolerance)
+	{
+		return document -> forEachForm(document, form -> {
+			if (form instanceof LineForm.PolyLine)
+				simplify((LineForm.PolyLine) form, tolerance);
+		});
+	}
+
+	private static Document forEachForm(Document document, Consumer<LineForm<?>> action)
+	{
+		for (Form form : document.forms())
+			if (form instanceof LineForm) // forms of other factories are left unchanged
+				action.accept(LineForm.convert(form));
+		return document;
+	}
+
+	static void simplify(LineForm.PolyLine polyLine, double tolerance)
+	{
+		double[] newValues = simplify(polyLine.getValues(), tolerance);
+		if (newValues!=null)
+			polyLine.setValues(newValues);
+	}
+
+	/**
+	 * @param values points of a polyline (x0,y0,x1,y1,...); they aren't changed
+	 * @return the values of the simplified polyline or <code>null</code>, if no point was removed
+	 */
+	static double[] simplify(double[] values, double tolerance)
+	{
+		int n = values.length/2;
+		if (n<3) return null;
+
+		boolean[] keep = new boolean[n];
+		keep[0] = keep[n-1] = true;
+		int[] stack = new int[2*n];
+		int top = 0;
+		stack[top++] = 0; stack[top++] = n-1;
+		while (top>0)
+		{
+			int last = stack[--top];
+			int first = stack[--top];
+			double x1 = values[2*first], y1 = values[2*first+1];
+			double x2 = values[2*last ], y2 = values[2*last +1];
+			double maxDist = -1;
+			int maxIndex = -1;
+			for (int i=first+1; i<last; i++)
+			{
+				double d = getSegmentDistance(values[2*i], values[2*i+1], x1, y1, x2, y2);
+				if (d>maxDist) { maxDist = d; maxIndex = i; }
+			}
+			if (maxIndex>=0 && maxDist>tolerance)
+			{
+				keep[maxIndex] = true;
+				stack[top++] = first;    stack[top++] = maxIndex;
+				stack[top++] = maxIndex; stack[top++] = last;
+			}
+		}
+
+		double[] newValues = new double[values.length];
+		int count = 0;
+		for (int i=0; i<n; i++)
+			if (keep[i])
+			{
+				newValues[count++] = values[2*i];
+				newValues[count++] = values[2*i+1];
+			}
+		return count<values.length ? Arrays.copyOf(newValues, count) : null;
+	}
+
+	private static double getSegmentDistance(double x, double y, double x1, double y1, double x2, double y2)
+	{
+		double dx = x2-x1, dy = y2-y1;
+		double lengthSq = dx*dx + dy*dy;
+		double f = lengthSq==0 ? 0 : Math.max(0, Math.min(1, ((x-x1)*dx + (y-y1)*dy) / lengthSq));
+		return Math.hypot(x-(x1+f*dx), y-(y1+f*dy));
+	}
+}
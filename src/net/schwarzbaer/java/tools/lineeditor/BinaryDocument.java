@@ -0,0 +1,236 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.EditorView.GuideLine;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+import net.schwarzbaer.java.tools.lineeditor.LineForm.FormType;
+
+/**
+ * Compact binary container for a list of forms and its guide lines.
+ * <br><br>
+ * File layout (big endian):
+ * <pre>
+ * header         : int magic, short version, short reserved, int formCount, int guideLineCount, long formTableOffset, long generation
+ * guide lines    : guideLineCount x ( byte type, double pos )
+ * forms          : formCount x ( byte type, int valueCount, double[valueCount] values )
+ * form table     : formCount x long offset of form record
+ * </pre>
+ * {@link #open(Path)} maps the file into memory and decodes forms only when they are requested.
+ */
+public class BinaryDocument
+{
+	private static final int   MAGIC = 0x4C454446; // "LEDF"
+	private static final short VERSION = 1;
+	private static final int   HEADER_SIZE = 32;
+	private static final int   GUIDELINE_RECORD_SIZE = 1+8;
+
+	private final MappedByteBuffer buffer;
+	private final Form.Factory factory;
+	private final int formCount;
+	private final int guideLineCount;
+	private final long formTableOffset;
+	private final long generation;
+	private final Form[] decodedForms;
+
+	private BinaryDocument(MappedByteBuffer buffer, Form.Factory factory) throws IOException
+	{
+		this.buffer = buffer;
+		this.factory = factory;
+
+		if (buffer.limit()<HEADER_SIZE || buffer.getInt(0)!=MAGIC)
+			throw new IOException("Unknown file format");
+		short version = buffer.getShort(4);
+		if (version!=VERSION)
+			throw new IOException(String.format("Unsupported file version: %d", version));
+
+		formCount       = buffer.getInt (8);
+		guideLineCount  = buffer.getInt (12);
+		formTableOffset = buffer.getLong(16);
+		generation      = buffer.getLong(24);
+		if (formCount<0 || guideLineCount<0 || HEADER_SIZE+guideLineCount*(long)GUIDELINE_RECORD_SIZE>buffer.limit() || formTableOffset<HEADER_SIZE || formTableOffset+formCount*8L>buffer.limit())
+			throw new IOException("Corrupt file header");
+
+		decodedForms = new Form[formCount];
+	}
+
+	public static BinaryDocument open(Path file) throws IOException
+	{
+		return open(file, LineEditor.createFormFactory());
+	}
+
+	public static BinaryDocument open(Path file, Form.Factory factory) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size>Integer.MAX_VALUE)
+				throw new IOException(String.format("File is too large (%d bytes)", size));
+			return new BinaryDocument(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), factory);
+		}
+	}
+
+	/** @return a number, that was set by the writer to identify this version of the file (0, if not set) */
+	long getGeneration()
+	{
+		return generation;
+	}
+
+	public int getFormCount()
+	{
+		return formCount;
+	}
+
+	/**
+	 * Decodes the form at <code>index</code> on first request.
+	 * @throws IOException if the form record lies outside of the file or has an unknown type
+	 */
+	public synchronized Form getForm(int index) throws IOException
+	{
+		if (index<0 || index>=formCount) throw new IndexOutOfBoundsException(index);
+		if (decodedForms[index]==null)
+			decodedForms[index] = decodeForm(buffer.getLong((int) (formTableOffset+index*8L)));
+		return decodedForms[index];
+	}
+
+	public Form[] getForms() throws IOException
+	{
+		Form[] forms = new Form[formCount];
+		for (int i=0; i<formCount; i++)
+			forms[i] = getForm(i);
+		return forms;
+	}
+
+	/**
+	 * @throws IOException if a guide line has an unknown type
+	 */
+	public GuideLinesStorage getGuideLines() throws IOException
+	{
+		GuideLinesStorage storage = new GuideLinesStorage();
+		GuideLine.Type[] types = GuideLine.Type.values();
+		int pos = HEADER_SIZE;
+		for (int i=0; i<guideLineCount; i++, pos+=GUIDELINE_RECORD_SIZE)
+		{
+			int type = buffer.get(pos);
+			if (type<0 || type>=types.length)
+				throw new IOException(String.format("Corrupt document: unknown guide line type %d in guide line %d", type, i));
+			storage.guideLines.add(new GuideLine(types[type], buffer.getDouble(pos+1)));
+		}
+		return storage;
+	}
+
+	private Form decodeForm(long offset) throws IOException
+	{
+		// check offset and count before allocating anything, a corrupt file must not cause huge allocations
+		if (offset<HEADER_SIZE || offset+5>buffer.limit())
+			throw new IOException(String.format("Corrupt document: form record at offset %d is outside of the file", offset));
+		int pos = (int) offset;
+		int type = buffer.get(pos);
+		int valueCount = buffer.getInt(pos+1);
+		if (valueCount<0 || offset+5+valueCount*8L>buffer.limit())
+			throw new IOException(String.format("Corrupt document: invalid value count %d of form record at offset %d", valueCount, offset));
+
+		FormType[] types = FormType.values();
+		if (type<0 || type>=types.length)
+			throw new IOException(String.format("Corrupt document: unknown form type %d at offset %d", type, offset));
+
+		double[] values = new double[valueCount];
+		pos += 5;
+		for (int i=0; i<valueCount; i++, pos+=8)
+			values[i] = buffer.getDouble(pos);
+		switch (types[type])
+		{
+		case PolyLine: return factory.createPolyLine(values);
+		case Line    : return factory.createLine    (values);
+		case Arc     : return factory.createArc     (values);
+		}
+		return null;
+	}
+
+	public static void write(Path file, Form[] forms, GuideLinesStorage guideLines) throws IOException
+	{
+		write(file, forms, guideLines, 0);
+	}
+
+	static void write(Path file, Form[] forms, GuideLinesStorage guideLines, long generation) throws IOException
+	{
+		try (OutputStream out = Files.newOutputStream(file))
+		{
+			write(out, forms, guideLines, generation);
+		}
+	}
+
+	public static void write(OutputStream out, Form[] forms, GuideLinesStorage guideLines) throws IOException
+	{
+		write(out, forms, guideLines, 0);
+	}
+
+	private static void write(OutputStream out, Form[] forms, GuideLinesStorage guideLines, long generation) throws IOException
+	{
+		if (forms==null) forms = new Form[0];
+		int guideLineCount = guideLines==null ? 0 : guideLines.guideLines.size();
+
+		long[] formOffsets = new long[forms.length];
+		long pos = HEADER_SIZE + guideLineCount*(long)GUIDELINE_RECORD_SIZE;
+		for (int i=0; i<forms.length; i++)
+		{
+			formOffsets[i] = pos;
+			pos += 5 + forms[i].getValues().length*8L;
+		}
+
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out, 1<<16));
+
+		dout.writeInt  (MAGIC);
+		dout.writeShort(VERSION);
+		dout.writeShort(0);
+		dout.writeInt  (forms.length);
+		dout.writeInt  (guideLineCount);
+		dout.writeLong (pos);
+		dout.writeLong (generation);
+
+		if (guideLines!=null)
+			for (GuideLine gl : guideLines.guideLines)
+			{
+				dout.writeByte(gl.type.ordinal());
+				dout.writeDouble(gl.pos);
+			}
+
+		for (Form form : forms)
+			writeFormRecord(dout, form);
+
+		for (long offset : formOffsets)
+			dout.writeLong(offset);
+
+		dout.flush();
+	}
+
+	static void writeFormRecord(DataOutputStream out, Form form) throws IOException
+	{
+		writeFormRecord(out, getFormType(form), form.getValues());
+	}
+
+	static void writeFormRecord(DataOutputStream out, FormType type, double[] values) throws IOException
+	{
+		out.writeByte(type.ordinal());
+		out.writeInt(values.length);
+		for (double value : values)
+			out.writeDouble(value);
+	}
+
+	static FormType getFormType(Form form)
+	{
+		if (form instanceof Form.PolyLine) return FormType.PolyLine;
+		if (form instanceof Form.Line    ) return FormType.Line;
+		if (form instanceof Form.Arc     ) return FormType.Arc;
+		throw new IllegalArgumentException(String.format("Unknown form class: %s", form==null ? null : form.getClass().getName()));
+	}
+}
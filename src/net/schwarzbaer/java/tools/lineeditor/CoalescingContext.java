@@ -0,0 +1,131 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.concurrent.Executor;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.FormsChangedEvent;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesChangedEvent;
+
+/**
+ * A {@link LineEditor.Context} that batches {@link LineEditor.Context#formsChanged(FormsChangedEvent) formsChanged}
+ * and {@link LineEditor.Context#guideLinesChanged(GuideLinesChangedEvent) guideLinesChanged} events
+ * and delivers one merged event per batch to the wrapped context.<br>
+ * All other calls are passed through immediately.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * new LineEditor(initialViewRect, new CoalescingContext(context, 100, null), features)
+ * </pre>
+ */
+public class CoalescingContext implements LineEditor.Context
+{
+	private final LineEditor.Context target;
+	private final Executor deliveryExecutor;
+	private final Timer timer;
+	private FormsChangedEvent      pendingFormsEvent;
+	private GuideLinesChangedEvent pendingGuideLinesEvent;
+	private boolean formsEventFirst;
+	private boolean flushScheduled;
+
+	/**
+	 * @param target           the context, that gets the merged events
+	 * @param windowMillis     time window in ms, in which events are merged, starting with the first event of a batch.
+	 *                         A value &lt;= 0 merges all events till the next turn of the event dispatch thread.
+	 * @param deliveryExecutor executor, that delivers the merged events, or <code>null</code> to deliver them on the event dispatch thread.
+	 *                         Note: {@link FormsChangedEvent#newFormsList()} should only be called on the event dispatch thread.
+	 */
+	public CoalescingContext(LineEditor.Context target, int windowMillis, Executor deliveryExecutor)
+	{
+		this.target = target;
+		this.deliveryExecutor = deliveryExecutor;
+		Debug.Assert(this.target!=null);
+
+		if (windowMillis>0)
+		{
+			timer = new Timer(windowMillis, e->flush());
+			timer.setRepeats(false);
+		}
+		else
+			timer = null;
+
+		pendingFormsEvent = null;
+		pendingGuideLinesEvent = null;
+		formsEventFirst = false;
+		flushScheduled = false;
+	}
+
+	@Override public void switchOptionsPanel(JComponent panel) { target.switchOptionsPanel(panel); }
+	@Override public boolean canModifyFormsList() { return target.canModifyFormsList(); }
+
+	@Override
+	public void guideLinesChanged(GuideLinesChangedEvent event)
+	{
+		if (pendingGuideLinesEvent==null)
+		{
+			pendingGuideLinesEvent = event;
+			formsEventFirst = pendingFormsEvent!=null;
+		}
+		else
+			pendingGuideLinesEvent = pendingGuideLinesEvent.merge(event);
+		scheduleFlush();
+	}
+
+	@Override
+	public void formsChanged(FormsChangedEvent event)
+	{
+		if (pendingFormsEvent==null)
+		{
+			pendingFormsEvent = event;
+			formsEventFirst = pendingGuideLinesEvent==null;
+		}
+		else
+		{
+			FormsChangedEvent merged = pendingFormsEvent.merge(event);
+			if (merged==null)
+			{
+				flush();
+				pendingFormsEvent = event;
+				formsEventFirst = true;
+			}
+			else
+				pendingFormsEvent = merged;
+		}
+		scheduleFlush();
+	}
+
+	private void scheduleFlush()
+	{
+		if (flushScheduled) return;
+		flushScheduled = true;
+		if (timer!=null) timer.restart();
+		else SwingUtilities.invokeLater(this::flush);
+	}
+
+	/**
+	 * Delivers all pending events immediately. Call it on the event dispatch thread.
+	 */
+	public void flush()
+	{
+		if (timer!=null) timer.stop();
+		flushScheduled = false;
+
+		FormsChangedEvent      formsEvent      = pendingFormsEvent;
+		GuideLinesChangedEvent guideLinesEvent = pendingGuideLinesEvent;
+		boolean formsFirst = formsEventFirst;
+		pendingFormsEvent = null;
+		pendingGuideLinesEvent = null;
+		if (formsEvent==null && guideLinesEvent==null) return;
+
+		Runnable delivery = () -> {
+			if (formsFirst && formsEvent!=null) target.formsChanged(formsEvent);
+			if (guideLinesEvent!=null) target.guideLinesChanged(guideLinesEvent);
+			if (!formsFirst && formsEvent!=null) target.formsChanged(formsEvent);
+		};
+
+		if (deliveryExecutor==null) delivery.run();
+		else deliveryExecutor.execute(delivery);
+	}
+}
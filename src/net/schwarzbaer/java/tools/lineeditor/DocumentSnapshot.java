@@ -0,0 +1,169 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+
+/**
+ * Immutable, versioned view of the forms list of a {@link LineEditor}.
+ * <br><br>
+ * A snapshot contains private copies of the forms, so it can be read by any thread without locks, while the user keeps editing.
+ * The forms of a snapshot must not be modified.
+ * The list is stored in chunks, that are shared between snapshots, so a new version only copies the chunks and forms that were changed.
+ * <br><br>
+ * The last completed snapshot is available via {@link LineEditor#getSnapshot()}, the current one via {@link LineEditor#awaitSnapshot()}.
+ */
+public final class DocumentSnapshot
+{
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1<<CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE-1;
+
+	static final DocumentSnapshot EMPTY = new DocumentSnapshot(0, new Form[0][], 0);
+
+	private final long version;
+	private final Form[][] chunks;
+	private final int size;
+
+	private DocumentSnapshot(long version, Form[][] chunks, int size)
+	{
+		this.version = version;
+		this.chunks = chunks;
+		this.size = size;
+	}
+
+	/** @return a number, that is increased with every change of the forms list */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public Form get(int index)
+	{
+		if (index<0 || index>=size) throw new IndexOutOfBoundsException(index);
+		return chunks[index>>>CHUNK_BITS][index&CHUNK_MASK];
+	}
+
+	public void forEach(Consumer<Form> action)
+	{
+		for (int i=0; i<size; i++)
+			action.accept(chunks[i>>>CHUNK_BITS][i&CHUNK_MASK]);
+	}
+
+	public Form[] toArray()
+	{
+		Form[] arr = new Form[size];
+		for (int c=0, pos=0; pos<size; c++, pos+=CHUNK_SIZE)
+			System.arraycopy(chunks[c], 0, arr, pos, Math.min(CHUNK_SIZE, size-pos));
+		return arr;
+	}
+
+	/**
+	 * Creates the next version of a snapshot. Chunks are copied before they are changed for the first time.
+	 * A builder can only build one snapshot.
+	 */
+	static class Builder
+	{
+		private final long version;
+		private Form[][] chunks;
+		private boolean[] owned;
+		private int size;
+		private boolean isBuilt;
+
+		Builder(DocumentSnapshot base)
+		{
+			this(base, true);
+		}
+
+		/**
+		 * @param keepForms if <code>false</code>, the builder starts with an empty list, but the version still follows <code>base</code>
+		 */
+		Builder(DocumentSnapshot base, boolean keepForms)
+		{
+			version = base.version+1;
+			chunks = keepForms ? base.chunks.clone() : new Form[0][];
+			owned = new boolean[chunks.length];
+			size = keepForms ? base.size : 0;
+			isBuilt = false;
+		}
+
+		int size()
+		{
+			return size;
+		}
+
+		/** Sets the form at <code>index</code>. <code>index==size()</code> appends the form. */
+		void set(int index, Form form)
+		{
+			Debug.Assert(!isBuilt);
+			if (index<0 || index>size) throw new IndexOutOfBoundsException(index);
+			if (index==size)
+			{
+				int c = size>>>CHUNK_BITS;
+				if (c>=chunks.length)
+				{
+					chunks = Arrays.copyOf(chunks, Math.max(4, chunks.length*2));
+					owned  = Arrays.copyOf(owned , chunks.length);
+				}
+				size++;
+			}
+			getOwnedChunk(index>>>CHUNK_BITS)[index&CHUNK_MASK] = form;
+		}
+
+		void append(Form form)
+		{
+			set(size, form);
+		}
+
+		/** Removes the forms at <code>sortedIndices</code> (ascending). Following forms are moved down. */
+		void remove(int[] sortedIndices)
+		{
+			Debug.Assert(!isBuilt);
+			if (sortedIndices.length==0) return;
+			int write = sortedIndices[0];
+			int r = 0;
+			for (int read=write; read<size; read++)
+			{
+				if (r<sortedIndices.length && sortedIndices[r]==read) { r++; continue; }
+				if (write!=read)
+					getOwnedChunk(write>>>CHUNK_BITS)[write&CHUNK_MASK] = chunks[read>>>CHUNK_BITS][read&CHUNK_MASK];
+				write++;
+			}
+			// drop references behind the new end
+			int oldSize = size;
+			size = write;
+			if ((size&CHUNK_MASK)!=0)
+			{
+				int c = size>>>CHUNK_BITS;
+				Arrays.fill(getOwnedChunk(c), size&CHUNK_MASK, Math.min(CHUNK_SIZE, oldSize-(c<<CHUNK_BITS)), null);
+			}
+			int usedChunks = (size+CHUNK_MASK)>>>CHUNK_BITS;
+			Arrays.fill(chunks, usedChunks, chunks.length, null);
+			Arrays.fill(owned , usedChunks, owned .length, false);
+		}
+
+		DocumentSnapshot build()
+		{
+			Debug.Assert(!isBuilt);
+			isBuilt = true;
+			int usedChunks = (size+CHUNK_MASK)>>>CHUNK_BITS;
+			return new DocumentSnapshot(version, usedChunks==chunks.length ? chunks : Arrays.copyOf(chunks, usedChunks), size);
+		}
+
+		private Form[] getOwnedChunk(int c)
+		{
+			if (!owned[c])
+			{
+				chunks[c] = chunks[c]==null ? new Form[CHUNK_SIZE] : chunks[c].clone();
+				owned[c] = true;
+			}
+			return chunks[c];
+		}
+	}
+}
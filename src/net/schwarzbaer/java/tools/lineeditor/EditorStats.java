@@ -0,0 +1,125 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+
+/**
+ * Counters of the hot paths of a {@link LineEditor}.
+ * Counters are incremented without locks; the form and vertex counts are read from the current {@link DocumentSnapshot}.
+ */
+class EditorStats implements LineEditorMXBean
+{
+	private final Supplier<DocumentSnapshot> getSnapshot;
+
+	private final LongAdder paintCount = new LongAdder();
+	private final LongAdder paintNanos = new LongAdder();
+	private volatile long lastPaintNanos = 0;
+	private final LongAdder hitTestCount = new LongAdder();
+	private final LongAdder snapQueryCount = new LongAdder();
+	private final LongAdder indexRebuildCount = new LongAdder();
+	private final LongAdder formsChangedEventCount = new LongAdder();
+	private final LongAdder guideLinesChangedEventCount = new LongAdder();
+	private volatile int lastFormsChangedEventSize = 0;
+
+	private long rateLastCount = 0;
+	private long rateLastTime = System.nanoTime();
+	private long vertexCountVersion = -1;
+	private long vertexCount = 0;
+
+	EditorStats(Supplier<DocumentSnapshot> getSnapshot)
+	{
+		this.getSnapshot = getSnapshot;
+	}
+
+	void paintFinished(long nanos)
+	{
+		paintCount.increment();
+		paintNanos.add(nanos);
+		lastPaintNanos = nanos;
+	}
+
+	void hitTest() { hitTestCount.increment(); }
+	void snapQuery() { snapQueryCount.increment(); }
+	void indexRebuilt() { indexRebuildCount.increment(); }
+	void guideLinesChangedEvent() { guideLinesChangedEventCount.increment(); }
+
+	void formsChangedEvent(int deltaSize)
+	{
+		formsChangedEventCount.increment();
+		lastFormsChangedEventSize = deltaSize;
+	}
+
+	@Override
+	public int getFormCount()
+	{
+		DocumentSnapshot snapshot = getSnapshot.get();
+		return snapshot==null ? 0 : snapshot.size();
+	}
+
+	@Override
+	public synchronized long getVertexCount()
+	{
+		DocumentSnapshot snapshot = getSnapshot.get();
+		if (snapshot==null) return 0;
+		if (vertexCountVersion!=snapshot.getVersion())
+		{
+			long count = 0;
+			for (int i=0; i<snapshot.size(); i++)
+			{
+				Form form = snapshot.get(i);
+				if (form instanceof Form.PolyLine) count += ((Form.PolyLine) form).points.size();
+				else if (form instanceof Form.Line || form instanceof Form.Arc) count += 2;
+			}
+			vertexCount = count;
+			vertexCountVersion = snapshot.getVersion();
+		}
+		return vertexCount;
+	}
+
+	@Override public long getPaintCount() { return paintCount.sum(); }
+	@Override public double getLastPaintMillis() { return lastPaintNanos/1e6; }
+
+	@Override
+	public double getAveragePaintMillis()
+	{
+		long count = paintCount.sum();
+		return count==0 ? 0 : paintNanos.sum()/1e6/count;
+	}
+
+	@Override public long getHitTestCount() { return hitTestCount.sum(); }
+
+	@Override
+	public synchronized double getHitTestsPerSecond()
+	{
+		long now = System.nanoTime();
+		long count = hitTestCount.sum();
+		double rate = now==rateLastTime ? 0 : (count-rateLastCount)*1e9/(now-rateLastTime);
+		rateLastCount = count;
+		rateLastTime = now;
+		return rate;
+	}
+
+	@Override public long getSnapQueryCount() { return snapQueryCount.sum(); }
+	@Override public long getIndexRebuildCount() { return indexRebuildCount.sum(); }
+	@Override public long getFormsChangedEventCount() { return formsChangedEventCount.sum(); }
+	@Override public long getGuideLinesChangedEventCount() { return guideLinesChangedEventCount.sum(); }
+	@Override public int getLastFormsChangedEventSize() { return lastFormsChangedEventSize; }
+
+	@Override
+	public synchronized void resetCounters()
+	{
+		paintCount.reset();
+		paintNanos.reset();
+		lastPaintNanos = 0;
+		hitTestCount.reset();
+		snapQueryCount.reset();
+		indexRebuildCount.reset();
+		formsChangedEventCount.reset();
+		guideLinesChangedEventCount.reset();
+		lastFormsChangedEventSize = 0;
+		rateLastCount = 0;
+		rateLastTime = System.nanoTime();
+	}
+}
@@ -8,21 +8,28 @@ import java.awt.RenderingHints;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.swing.JPanel;
 
 import net.schwarzbaer.java.lib.gui.ZoomableCanvas;
 import net.schwarzbaer.java.lib.image.linegeometry.Form;
-import net.schwarzbaer.java.lib.image.linegeometry.Math2;
-import net.schwarzbaer.java.tools.lineeditor.EditorView.GuideLine.Type;
 import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
 
 class EditorView extends ZoomableCanvas<EditorView.ViewState> {
@@ -39,6 +46,9 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 	private static final Color COLOR_POINT_FILL             = Color.WHITE;
 	private static final Color COLOR_POINT_FILL_HIGHLIGHTED = Color.GREEN;
 	private static final Color COLOR_POINT_CONTOUR          = Color.BLACK;
+	private static final Color COLOR_SELECTION_AREA         = new Color(0x203070ff,true);
+	private static final Color COLOR_SELECTION_CONTOUR      = new Color(0x3070ff);
+	private static final int   ARC_SAMPLES_FOR_LASSO        = 32;
 
 	private LineForm<?>[] forms = null;
 	private GuideLinesStorage guideLines = null;
@@ -48,14 +58,36 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 	private final Context context;
 	private boolean stickToGuideLines = true;
 	private boolean stickToFormPoints = true;
+	private boolean stickToIntersections = true;
 	private final EditorViewFeature[] features;
+	private final FrameTimings frameTimings;
+	private final EditorStats stats;
+	private final LatencyTracer latencyTracer = new LatencyTracer();
+	private long currentEventStart = 0; // start time of the mouse event in progress, for latencyTracer
+	private SessionRecorder sessionRecorder = null;
 	private final Rectangle2D.Double initialViewRect;
+	private final SnappingEngine snappingEngine = new SnappingEngine();
+	private final IntersectionIndex intersectionIndex;
+	private final FrameThrottle hoverThrottle = new FrameThrottle(); // hover hit-tests at most once per frame
+	private final GeometryWorker geometryWorker;
+	private FormBoundsIndex formBoundsIndex = new FormBoundsIndex();
+	private final Set<LineForm<?>> unindexedForms = Collections.newSetFromMap(new IdentityHashMap<>()); // current forms, that aren't in formBoundsIndex yet
+	private IdentityHashMap<LineForm<?>, Boolean> formBoundsChanges = null; // changes (form -> is present) while a new formBoundsIndex is built in background, otherwise null
+	private long formBoundsGeneration = 0; // increased, if formBoundsIndex is replaced on the EDT; a background build of an older generation is discarded
+	private AreaSelection areaSelection = null;
+	private boolean keepHighlightedForms = false; // set after an area selection, hovering doesn't change highlighted forms until next click
 	
-	EditorView(Rectangle2D.Double initialViewRect, EditorViewFeature[] features, Context context) {
+	EditorView(Rectangle2D.Double initialViewRect, EditorViewFeature[] features, Context context, EditorStats stats, GeometryWorker geometryWorker) {
 		this.initialViewRect = initialViewRect;
 		this.features = features;
+		this.frameTimings = new FrameTimings(features);
 		this.context = context;
+		this.stats = stats;
+		this.geometryWorker = geometryWorker;
 		Debug.Assert(this.context!=null);
+		Debug.Assert(this.stats!=null);
+		Debug.Assert(this.geometryWorker!=null);
+		intersectionIndex = new IntersectionIndex(geometryWorker);
 		
 		for (EditorViewFeature feature : features)
 			feature.setEditorView(this);
@@ -63,16 +95,18 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 		activateMapScale(COLOR_AXIS, "px");
 		activateAxes(COLOR_AXIS, true,true,true,true);
 		addKeyListener(new KeyListener() {
-			@Override public void keyTyped   (KeyEvent e) { if (formEditing!=null) formEditing.keyTyped   (e); }
-			@Override public void keyReleased(KeyEvent e) { if (formEditing!=null) formEditing.keyReleased(e); }
-			@Override public void keyPressed (KeyEvent e) { if (formEditing!=null) formEditing.keyPressed (e); }
+			@Override public void keyTyped   (KeyEvent e) { record(e); if (formEditing!=null) formEditing.keyTyped   (e); }
+			@Override public void keyReleased(KeyEvent e) { record(e); if (formEditing!=null) formEditing.keyReleased(e); }
+			@Override public void keyPressed (KeyEvent e) { record(e); if (formEditing!=null) formEditing.keyPressed (e); }
 		});
 	}
 
 	boolean isStickToGuideLines() { return stickToGuideLines; }
 	boolean isStickToFormPoints() { return stickToFormPoints; }
+	boolean isStickToIntersections() { return stickToIntersections; }
 	void setStickToGuideLines(boolean stickToGuideLines) { this.stickToGuideLines = stickToGuideLines; repaint(); }
 	void setStickToFormPoints(boolean stickToFormPoints) { this.stickToFormPoints = stickToFormPoints; repaint(); }
+	void setStickToIntersections(boolean stickToIntersections) { this.stickToIntersections = stickToIntersections; repaint(); }
 
 	void setGuideLines(GuideLinesStorage guideLines) {
 		this.guideLines = guideLines;
@@ -86,12 +120,123 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 
 	void setForms(LineForm<?>[] forms) {
 		this.forms = forms;
+		intersectionIndex.setForms(forms);
+		stats.indexRebuilt();
+		setFormBounds(forms);
+		areaSelection = null;
+		keepHighlightedForms = false;
 		highlightedForms.clear();
 		deselect();
 		repaint();
 	}
 
+	/**
+	 * Sets a forms list, that only differs from the current one by appended forms.
+	 * Selection and highlighted forms are kept.
+	 */
+	void appendForms(LineForm<?>[] forms) {
+		int oldLength = this.forms==null ? 0 : this.forms.length;
+		this.forms = forms;
+		intersectionIndex.addForms(forms, oldLength);
+		addFormBounds(Arrays.asList(forms).subList(oldLength, forms.length));
+		repaint();
+	}
+	
+	/**
+	 * Updates all indices after the geometry of <code>forms</code> was changed outside of this view.
+	 */
+	void formsModified(LineForm<?>... forms) {
+		intersectionIndex.update(forms);
+		for (LineForm<?> form : forms) {
+			if (formBoundsIndex.contains(form)) formBoundsIndex.add(form);
+			else if (!unindexedForms.contains(form)) continue; // not in forms list
+			logFormBoundsChange(form, true);
+		}
+	}
+	
+	/**
+	 * Is called after each new snapshot of the forms list (see {@link LineEditor#getSnapshotAsync()}).
+	 * Starts a rebuild of the form bounds index on the background thread, if forms are waiting for it or its grid is outdated.
+	 */
+	void snapshotChanged() {
+		if (formBoundsChanges!=null) return; // a build is running
+		if (unindexedForms.isEmpty() && !formBoundsIndex.isGridOutdated()) return;
+		LineForm<?>[] keys = forms==null ? new LineForm<?>[0] : forms.clone();
+		long generation = formBoundsGeneration;
+		formBoundsChanges = new IdentityHashMap<>();
+		geometryWorker.submitAnyVersion("FormBoundsIndex", snapshot -> {
+			if (snapshot.size()!=keys.length) return null; // snapshot doesn't belong to keys
+			stats.indexRebuilt();
+			return new FormBoundsIndex(keys, snapshot.toArray());
+		}, index -> {
+			IdentityHashMap<LineForm<?>, Boolean> changes = formBoundsChanges;
+			formBoundsChanges = null;
+			if (index==null) return; // job failed, next snapshot starts a new build
+			if (generation==formBoundsGeneration) {
+				// bring index up to date with the changes since the snapshot
+				changes.forEach((form, isPresent) -> {
+					if (!isPresent) index.remove(form);
+					else if (index.contains(form) || !unindexedForms.contains(form)) index.add(form);
+				});
+				unindexedForms.removeIf(index::contains);
+				formBoundsIndex = index;
+			}
+			snapshotChanged(); // for forms added in the meantime
+		});
+	}
+	
+	private static final int MAX_FORMS_INDEXED_ON_EDT = 256;
+	
+	private void setFormBounds(LineForm<?>[] forms) {
+		Set<LineForm<?>> formSet = Collections.newSetFromMap(new IdentityHashMap<>());
+		if (forms!=null) formSet.addAll(Arrays.asList(forms));
+		ArrayList<LineForm<?>> added = new ArrayList<>();
+		for (LineForm<?> form : formSet)
+			if (!formBoundsIndex.contains(form) && !unindexedForms.contains(form))
+				added.add(form);
+		
+		if (added.size()==formSet.size()) {
+			// nothing in common with the old forms list
+			formBoundsIndex = new FormBoundsIndex();
+			unindexedForms.clear();
+			formBoundsGeneration++;
+		} else {
+			for (LineForm<?> form : unindexedForms)
+				if (!formSet.contains(form)) logFormBoundsChange(form, false);
+			unindexedForms.retainAll(formSet);
+			for (LineForm<?> form : formBoundsIndex.retainAll(formSet))
+				logFormBoundsChange(form, false);
+		}
+		addFormBounds(added);
+	}
+	
+	private void addFormBounds(List<LineForm<?>> added) {
+		if (added.size()>MAX_FORMS_INDEXED_ON_EDT) {
+			// wait for the background build, forms are checked one by one until then
+			unindexedForms.addAll(added);
+			return;
+		}
+		for (LineForm<?> form : added) {
+			formBoundsIndex.add(form);
+			logFormBoundsChange(form, true);
+		}
+	}
+	
+	private void logFormBoundsChange(LineForm<?> form, boolean isPresent) {
+		if (formBoundsChanges!=null) formBoundsChanges.put(form, isPresent);
+	}
+	
+	/**
+	 * Calls <code>action</code> for each form, whose bounding box is completely inside the given rectangle.
+	 */
+	private void forEachFormInside(double x0, double y0, double x1, double y1, Consumer<LineForm<?>> action) {
+		formBoundsIndex.forEachInside(x0, y0, x1, y1, action);
+		for (LineForm<?> form : unindexedForms)
+			if (FormBoundsIndex.isInside(form, x0, y0, x1, y1)) action.accept(form);
+	}
+
 	ViewState getViewState() { return viewState; }
+	LineForm<?> getEditedForm() { return formEditing==null ? null : formEditing.getForm(); }
 	
 	interface Context {
 		void setValuePanel(JPanel panel);
@@ -99,60 +244,47 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 		void showsContextMenu(int x, int y);
 	}
 	
+	/**
+	 * Prepares snapping for a drag of a point of <code>editedForm</code>.
+	 * Until {@link #endSnappingSession()}, all candidates are taken from a cache.
+	 */
+	void startSnappingSession(LineForm<?> editedForm) {
+		double maxDist = viewState.convertLength_ScreenToLength(MAX_GUIDELINE_DISTANCE);
+		double x0 = viewState.convertPos_ScreenToAngle_LongX(0);
+		double y0 = viewState.convertPos_ScreenToAngle_LatY (0);
+		double x1 = viewState.convertPos_ScreenToAngle_LongX(width);
+		double y1 = viewState.convertPos_ScreenToAngle_LatY (height);
+		snappingEngine.startSession(
+			forms, guideLines, intersectionIndex.getPoints(), editedForm, maxDist,
+			Math.min(x0,x1)-maxDist, Math.min(y0,y1)-maxDist,
+			Math.max(x0,x1)+maxDist, Math.max(y0,y1)+maxDist
+		);
+	}
+	
+	void endSnappingSession() {
+		snappingEngine.endSession();
+	}
+	
 	Point2D.Double stickToGuides_px(int xs, int ys, boolean isXFixed, boolean isYFixed) {
 		double x = viewState.convertPos_ScreenToAngle_LongX(xs);
 		double y = viewState.convertPos_ScreenToAngle_LatY (ys);
 		return stickToGuides(x, y, isXFixed, isYFixed);
 	}
+	/**
+	 * @return the snapped position; this object is reused by the next call
+	 */
 	Point2D.Double stickToGuides(double x, double y, boolean isXFixed, boolean isYFixed) {
-		if (!isXFixed || !isYFixed) {
-			double maxDist = viewState.convertLength_ScreenToLength(MAX_GUIDELINE_DISTANCE);
-			GuideResult resultX = !stickToGuideLines ? null : GuideLine.stickToGuideLines(x, Type.Vertical  , maxDist, guideLines);
-			GuideResult resultY = !stickToGuideLines ? null : GuideLine.stickToGuideLines(y, Type.Horizontal, maxDist, guideLines);
-			GuideResult resultP = !stickToFormPoints ? null : stickToFormPoints(x,y,maxDist);
-			
-			if (!isXFixed && !isYFixed && resultP!=null && 
-				( resultX==null || resultP.dist<=resultX.dist || isNear(resultP.x,resultX.x, resultP.dist/20) ) &&
-				( resultY==null || resultP.dist<=resultY.dist || isNear(resultP.y,resultY.y, resultP.dist/20) )
-			) {
-				x = resultP.x;
-				y = resultP.y;
-			}
-			else
-			{
-				if (!isXFixed && resultX!=null) x = resultX.x;
-				if (!isYFixed && resultY!=null) y = resultY.y;
-			}
-			//System.out.printf(Locale.ENGLISH, "stickToGuides( x:%1.4f%s, y:%1.4f%s ) -> GlX:%-23s GlY:%-23s FP:%-33s -> ( %1.4f, %1.4f )%n", x,isXFixed?"[F]":"", y,isYFixed?"[F]":"", resultX, resultY, resultP, x,y );
+		stats.snapQuery();
+		double maxDist = viewState.convertLength_ScreenToLength(MAX_GUIDELINE_DISTANCE);
+		if (snappingEngine.isSessionActive()) {
+			if (snappingEngine.getSessionMaxDist()!=maxDist) // zoom has changed
+				startSnappingSession(formEditing==null ? null : formEditing.getForm());
+			return snappingEngine.stickToCandidates(x, y, isXFixed, isYFixed, maxDist, stickToGuideLines, stickToFormPoints, stickToIntersections);
 		}
-		return new Point2D.Double(x,y);
-	}
-
-
-	private boolean isNear(double val1, double val2, double threshold)
-	{
-		return Math.abs(val1-val2) < threshold;
+		LineForm<?> excludedForm = formEditing==null ? null : formEditing.getForm();
+		return snappingEngine.stickToAll(x, y, isXFixed, isYFixed, maxDist, stickToGuideLines, stickToFormPoints, stickToIntersections, forms, guideLines, intersectionIndex.getPoints(), excludedForm);
 	}
 
-	private GuideResult stickToFormPoints(double x, double y, double maxDist) {
-		if (forms==null) return null;
-		TempGuideResult result = new TempGuideResult();
-		for (LineForm<?> form:forms) {
-			if (formEditing!=null && form==formEditing.getForm()) continue;
-			form.forEachPoint((xP,yP)->{
-				double d = Math2.dist(xP,yP,x,y);
-				if (d<maxDist && (result.dist==null || d<result.dist)) {
-					result.dist = d;
-					result.x = xP;
-					result.y = yP;
-				}
-			});
-		}
-		return result.toGuideResult();
-	}
-
-
-
 //	float stickToGuideLineX(float x) {
 //		GuideResult result = GuideLine.stickToGuideLines(x, Type.Vertical  , viewState.convertLength_ScreenToLength(MAX_GUIDELINE_DISTANCE), guideLines);
 //		if (result!=null && result.x!=null) x=result.x;
@@ -169,10 +301,24 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 			for (GuideLine gl : guideLines.guideLines)
 				action.accept(gl.type,gl.pos);
 	}
+	
+	void forEachForm(Consumer<LineForm<?>> action) {
+		if (forms!=null)
+			for (LineForm<?> form : forms)
+				action.accept(form);
+	}
 
+	SessionRecorder getSessionRecorder() { return sessionRecorder; }
+	void setSessionRecorder(SessionRecorder sessionRecorder) { this.sessionRecorder = sessionRecorder; }
+	
+	private void record(MouseEvent e) { if (sessionRecorder!=null) sessionRecorder.mouseEvent(e); }
+	private void record(KeyEvent   e) { if (sessionRecorder!=null) sessionRecorder.keyEvent  (e); }
+	
 	@Override public void mouseClicked (MouseEvent e) {
+		record(e);
 		switch (e.getButton()) {
 		case MouseEvent.BUTTON1:
+			keepHighlightedForms = false;
 			if (formEditing!=null) {
 				if (!formEditing.onClicked(e)) deselect();
 			} else
@@ -183,15 +329,169 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 			break;
 		}
 	}
-	@Override public void mouseEntered (MouseEvent e) { if (formEditing!=null) formEditing.onEntered (e); else setHighlightedForm(e.getPoint()); setHighlightedGuideLine(null); }
-	@Override public void mouseMoved   (MouseEvent e) { if (formEditing!=null) formEditing.onMoved   (e); else setHighlightedForm(e.getPoint()); }
-	@Override public void mouseExited  (MouseEvent e) { if (formEditing!=null) formEditing.onExited  (e); else setHighlightedForm((Point)null ); }
-	@Override public void mousePressed (MouseEvent e) { if (formEditing==null || !formEditing.onPressed (e)) super.mousePressed (e); }
-	@Override public void mouseReleased(MouseEvent e) { if (formEditing==null || !formEditing.onReleased(e)) super.mouseReleased(e); }
-	@Override public void mouseDragged (MouseEvent e) { if (formEditing==null || !formEditing.onDragged (e)) super.mouseDragged (e); }
+	@Override public void mouseEntered (MouseEvent e) { record(e); if (formEditing!=null) formEditing.onEntered (e); else setHoveredForm(e.getPoint()); setHighlightedGuideLine(null); }
+	@Override public void mouseMoved   (MouseEvent e) {
+		record(e);
+		long start = latencyTracer.eventReceived();
+		boolean replaced = hoverThrottle.schedule(()->{
+			if (formEditing!=null) formEditing.onMoved(e); else setHoveredForm(e.getPoint());
+			latencyTracer.eventHandled(start);
+		});
+		if (replaced) latencyTracer.eventDropped();
+	}
+	@Override public void mouseExited  (MouseEvent e) { record(e); hoverThrottle.cancel(); if (formEditing!=null) formEditing.onExited  (e); else setHoveredForm((Point)null ); }
+	@Override public void mousePressed (MouseEvent e) {
+		record(e);
+		hoverThrottle.cancel();
+		if (formEditing==null && e.getButton()==MouseEvent.BUTTON1 && e.isShiftDown()) { startAreaSelection(e); return; }
+		if (formEditing==null || !formEditing.onPressed (e)) super.mousePressed (e);
+	}
+	@Override public void mouseReleased(MouseEvent e) {
+		record(e);
+		if (areaSelection!=null) { finishAreaSelection(e); return; }
+		if (formEditing==null || !formEditing.onReleased(e)) super.mouseReleased(e);
+	}
+	@Override public void mouseDragged (MouseEvent e) {
+		record(e);
+		if (areaSelection!=null) { continueAreaSelection(e); return; }
+		currentEventStart = latencyTracer.eventReceived();
+		if (formEditing==null || !formEditing.onDragged (e)) super.mouseDragged (e);
+		currentEventStart = 0;
+	}
+	@Override public void mouseWheelMoved(MouseWheelEvent e) {
+		record(e);
+		super.mouseWheelMoved(e);
+	}
+	
+	/** Runs a pending (throttled) hover update immediately, e.g. before a frame is painted by a headless driver. */
+	void flushHover() {
+		hoverThrottle.flush();
+	}
+	
+	/** Is called by {@link LineFormEditing}, after a dragged point was modified. */
+	void pointModified() {
+		latencyTracer.eventHandled(currentEventStart);
+		currentEventStart = 0;
+	}
+	
+	/**
+	 * Rectangle (Shift + drag) or lasso (Shift + Alt + drag) selection of forms.
+	 * A rectangle selects all forms, that are completely inside of it.
+	 * A lasso selects all forms, whose points (for arcs: sampled points on the arc) are inside of it.
+	 */
+	private class AreaSelection {
+		final boolean isLasso;
+		final Path2D.Double lasso;
+		double[] xs, ys; // path in model coordinates
+		int count;
+		
+		AreaSelection(boolean isLasso, double x, double y) {
+			this.isLasso = isLasso;
+			lasso = isLasso ? new Path2D.Double() : null;
+			xs = new double[isLasso ? 64 : 2];
+			ys = new double[xs.length];
+			count = 0;
+			add(x,y);
+		}
+		
+		void add(double x, double y) {
+			if (!isLasso) {
+				if (count==0) { xs[0] = x; ys[0] = y; }
+				xs[1] = x; ys[1] = y;
+				count = 2;
+				return;
+			}
+			if (count>=xs.length) {
+				xs = Arrays.copyOf(xs, xs.length*2);
+				ys = Arrays.copyOf(ys, ys.length*2);
+			}
+			xs[count] = x;
+			ys[count] = y;
+			count++;
+			if (count==1) lasso.moveTo(x,y);
+			else          lasso.lineTo(x,y);
+		}
+		
+		Vector<LineForm<?>> getSelectedForms() {
+			Vector<LineForm<?>> selected = new Vector<>();
+			if (!isLasso) {
+				forEachFormInside(xs[0], ys[0], xs[1], ys[1], selected::add);
+			} else if (count>2) {
+				Rectangle2D bounds = lasso.getBounds2D();
+				forEachFormInside(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), form->{
+					if (isInsideLasso(form)) selected.add(form);
+				});
+			}
+			return selected;
+		}
+		
+		private boolean isInsideLasso(LineForm<?> form) {
+			if (form instanceof LineForm.Arc) {
+				LineForm.Arc arc = (LineForm.Arc) form;
+				for (int i=0; i<=ARC_SAMPLES_FOR_LASSO; i++) {
+					double a = arc.aStart + (arc.aEnd-arc.aStart)*i/ARC_SAMPLES_FOR_LASSO;
+					if (!lasso.contains(arc.xC+arc.r*Math.cos(a), arc.yC+arc.r*Math.sin(a))) return false;
+				}
+				return true;
+			}
+			boolean[] isInside = new boolean[] { true };
+			form.forEachPoint((x,y)->{ if (isInside[0] && !lasso.contains(x,y)) isInside[0] = false; });
+			return isInside[0];
+		}
+		
+		void draw(Graphics2D g2) {
+			int[] xsS = new int[count];
+			int[] ysS = new int[count];
+			for (int i=0; i<count; i++) {
+				xsS[i] = viewState.convertPos_AngleToScreen_LongX(xs[i]);
+				ysS[i] = viewState.convertPos_AngleToScreen_LatY (ys[i]);
+			}
+			if (isLasso) {
+				g2.setColor(COLOR_SELECTION_AREA);
+				g2.fillPolygon(xsS, ysS, count);
+				g2.setColor(COLOR_SELECTION_CONTOUR);
+				g2.drawPolygon(xsS, ysS, count);
+			} else {
+				int x = Math.min(xsS[0], xsS[1]);
+				int y = Math.min(ysS[0], ysS[1]);
+				int w = Math.abs(xsS[1]-xsS[0]);
+				int h = Math.abs(ysS[1]-ysS[0]);
+				g2.setColor(COLOR_SELECTION_AREA);
+				g2.fillRect(x, y, w, h);
+				g2.setColor(COLOR_SELECTION_CONTOUR);
+				g2.drawRect(x, y, w, h);
+			}
+		}
+	}
+	
+	private void startAreaSelection(MouseEvent e) {
+		double x = viewState.convertPos_ScreenToAngle_LongX(e.getX());
+		double y = viewState.convertPos_ScreenToAngle_LatY (e.getY());
+		areaSelection = new AreaSelection(e.isAltDown(), x, y);
+		keepHighlightedForms = true;
+		setHighlightedForms(null, true);
+	}
+	
+	private void continueAreaSelection(MouseEvent e) {
+		areaSelection.add(viewState.convertPos_ScreenToAngle_LongX(e.getX()), viewState.convertPos_ScreenToAngle_LatY(e.getY()));
+		AreaSelection selection = areaSelection;
+		// range query at most once per frame
+		hoverThrottle.schedule(()->{ if (areaSelection==selection) setHighlightedForms(selection.getSelectedForms(), false); });
+		repaint();
+	}
+	
+	private void finishAreaSelection(MouseEvent e) {
+		hoverThrottle.cancel();
+		areaSelection.add(viewState.convertPos_ScreenToAngle_LongX(e.getX()), viewState.convertPos_ScreenToAngle_LatY(e.getY()));
+		Vector<LineForm<?>> selected = areaSelection.getSelectedForms();
+		areaSelection = null;
+		keepHighlightedForms = !selected.isEmpty();
+		setHighlightedForms(selected, true);
+	}
 	
 	void deselect() {
-		if (formEditing!=null) formEditing.stopEditing();
+		snappingEngine.endSession();
+		if (formEditing!=null) { formEditing.stopEditing(); formsModified(formEditing.getForm()); }
 		formEditing=null;
 		context.setValuePanel(null);
 	}
@@ -203,7 +503,8 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 		setSelectedForm(selectedForm, null);
 	}
 	private void setSelectedForm(LineForm<?> selectedForm, MouseEvent e) {
-		if (formEditing!=null) formEditing.stopEditing();
+		snappingEngine.endSession();
+		if (formEditing!=null) { formEditing.stopEditing(); formsModified(formEditing.getForm()); }
 		formEditing = LineFormEditing.create(selectedForm,viewState,this,e);
 		if (formEditing!=null) context.setValuePanel(formEditing.createValuePanel());
 		highlightedForms.clear();
@@ -215,6 +516,9 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 		repaint();
 	}
 
+	private void setHoveredForm(Point p) {
+		if (!keepHighlightedForms) setHighlightedForm(p);
+	}
 	private void setHighlightedForm(Point p) {
 		Vector<LineForm<?>> vector = new Vector<>();
 		LineForm<?> form = getNext(p);
@@ -235,6 +539,7 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 
 	private LineForm<?> getNext(Point p) {
 		if (p==null || forms==null) return null;
+		stats.hitTest();
 		
 		Double minDist = null;
 		LineForm<?> nearest = null;
@@ -263,8 +568,16 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 		return rect;
 	}
 
+	/** Shows exactly the area <code>view</code> (e.g. the start view of a recorded session). */
+	void setViewRectangle(Rectangle2D view) {
+		viewState.fixedView = new Rectangle2D.Double(view.getX(), view.getY(), view.getWidth(), view.getHeight());
+		reset();
+		viewState.fixedView = null;
+	}
+
 	@Override
 	protected void paintCanvas(Graphics g, int x, int y, int width, int height) {
+		long paintStart = System.nanoTime();
 		g.setColor(COLOR_BACKGROUND);
 		g.fillRect(x, y, width, height);
 		
@@ -274,34 +587,60 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 			//g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
 			
+			frameTimings.startFrame();
+			frameTimings.startPhase(FrameTimings.Phase.Features);
 			if (forms!=null)
-				for (EditorViewFeature feature : features)
-					feature.draw(g2, x, y, width, height, viewState, Arrays.asList(forms));
+				for (int i=0; i<features.length; i++) {
+					long start = frameTimings.startFeature();
+					features[i].draw(g2, x, y, width, height, viewState, Arrays.asList(forms));
+					frameTimings.endFeature(i, start);
+				}
 			
+			frameTimings.startPhase(FrameTimings.Phase.GuideLines);
 			if (guideLines!=null)
 				for (GuideLine gl : guideLines.guideLines) {
 					g2.setColor(gl==highlightedGuideLine ? COLOR_GUIDELINES_HIGHLIGHTED : COLOR_GUIDELINES);
 					gl.draw(viewState,g2,x,y,width,height);
 				}
 			
+			frameTimings.startPhase(FrameTimings.Phase.MapDecoration);
 			drawMapDecoration(g2, x, y, width, height);
 
+			frameTimings.startPhase(FrameTimings.Phase.Forms);
 			LineForm<?> selectedForm = formEditing==null ? null : formEditing.getForm();
 			if (forms!=null)
 				for (LineForm<?> form:forms)
 					if (form!=selectedForm && !highlightedForms.contains(form)) form.drawLines(g2,viewState,false,false);
 			
+			frameTimings.startPhase(FrameTimings.Phase.Selection);
 			if (selectedForm!=null) {
 				selectedForm.drawLines(g2,viewState,true,false);
 				selectedForm.drawPoints(g2,viewState);
 			}
 			
+			frameTimings.startPhase(FrameTimings.Phase.Highlights);
 			for (LineForm<?> hlf:highlightedForms) {
 				hlf.drawLines(g2,viewState,false,true);
 				hlf.drawPoints(g2,viewState);
 			}
+			
+			frameTimings.startPhase(FrameTimings.Phase.AreaSelection);
+			if (areaSelection!=null)
+				areaSelection.draw(g2);
+			frameTimings.endFrame();
 		}
 		
+		stats.paintFinished(System.nanoTime()-paintStart);
+		if (sessionRecorder!=null) sessionRecorder.viewChanged(getViewRectangle());
+		latencyTracer.frameShown();
+	}
+	
+	FrameTimings getFrameTimings() {
+		return frameTimings;
+	}
+	
+	LatencyTracer getLatencyTracer() {
+		return latencyTracer;
 	}
 	
 	static void drawForm(Graphics2D g2, Form form, ZoomableCanvas.ViewState viewState)
@@ -343,6 +682,7 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 	class ViewState extends ZoomableCanvas.ViewState {
 		
 		private java.awt.geom.Rectangle2D.Double minViewSize;
+		private Rectangle2D.Double fixedView = null; // set only during setViewRectangle
 
 		private ViewState() {
 			super(EditorView.this,0.1f);
@@ -360,17 +700,28 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 
 		@Override
 		protected void determineMinMax(MapLatLong min, MapLatLong max) {
-			Rectangle2D.Double bb = minViewSize;
+			if (fixedView!=null)
+			{
+				min.latitude_y  = fixedView.y;
+				min.longitude_x = fixedView.x;
+				max.latitude_y  = fixedView.y+fixedView.height;
+				max.longitude_x = fixedView.x+fixedView.width;
+				return;
+			}
+			Rectangle2D.Double bb = null;
+			if (minViewSize!=null)
+			{
+				bb = new Rectangle2D.Double();
+				bb.setRect(minViewSize);
+			}
 			if (forms!=null)
 			{
-				for (LineForm<?> form : forms)
-					if (bb != null)
-						bb.add(form.computeBoundingBox());
-					else
-					{
-						bb = new Rectangle2D.Double();
-						bb.setRect(form.computeBoundingBox());
-					}
+				Rectangle2D.Double formsBB = computeBoundingBox(forms);
+				if (formsBB!=null)
+				{
+					if (bb!=null) bb.add(formsBB);
+					else bb = formsBB;
+				}
 				if (bb!=null)
 				{
 					double border = Math.max(bb.width, bb.height)/6;
@@ -393,28 +744,80 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 		}
 	}
 	
-	private record GuideResult(Double x, Double y, double dist)
+	/**
+	 * @return a new rectangle, that contains the bounding boxes of all <code>forms</code>, or <code>null</code>, if there are none.
+	 * Large lists are processed in parallel.
+	 */
+	static Rectangle2D.Double computeBoundingBox(LineForm<?>[] forms)
 	{
-		@Override
-		public String toString() {
-			String xStr = x==null?"":String.format(Locale.ENGLISH, "X:%1.4f, ", x);
-			String yStr = y==null?"":String.format(Locale.ENGLISH, "Y:%1.4f, ", y);
-			return String.format(Locale.ENGLISH, "(%s%sdist:%1.4f)", xStr, yStr, dist);
-		}
+		double[] bounds;
+		if (forms.length < BoundingBoxTask.MIN_FORMS_FOR_PARALLEL)
+			bounds = BoundingBoxTask.computeSequential(forms, 0, forms.length);
+		else
+			bounds = ForkJoinPool.commonPool().invoke(new BoundingBoxTask(forms, 0, forms.length));
+		if (bounds==null) return null;
+		return new Rectangle2D.Double(bounds[0], bounds[1], bounds[2]-bounds[0], bounds[3]-bounds[1]);
 	}
 	
-	private static class TempGuideResult
+	private static class BoundingBoxTask extends RecursiveTask<double[]>
 	{
-		double x,y;
-		Double dist;
-		TempGuideResult() {
-			this.x = 0;
-			this.y = 0;
-			this.dist = null;
+		private static final long serialVersionUID = 4781283916302750375L;
+		private static final int MIN_FORMS_FOR_PARALLEL = 20000;
+		private static final int FORMS_PER_TASK = 5000;
+		
+		private final LineForm<?>[] forms;
+		private final int start, end;
+		
+		BoundingBoxTask(LineForm<?>[] forms, int start, int end)
+		{
+			this.forms = forms;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected double[] compute()
+		{
+			if (end-start <= FORMS_PER_TASK)
+				return computeSequential(forms, start, end);
+			
+			int mid = (start+end) >>> 1;
+			BoundingBoxTask left = new BoundingBoxTask(forms, start, mid);
+			left.fork();
+			double[] right = new BoundingBoxTask(forms, mid, end).compute();
+			return combine(left.join(), right);
 		}
-		GuideResult toGuideResult() {
-			if (dist==null) return null;
-			return new GuideResult(x,y,dist);
+
+		/** @return { minX, minY, maxX, maxY } or <code>null</code> */
+		static double[] computeSequential(LineForm<?>[] forms, int start, int end)
+		{
+			double[] bounds = null;
+			for (int i=start; i<end; i++)
+			{
+				Rectangle2D.Double bb = forms[i].computeBoundingBox();
+				if (bb==null) continue;
+				if (bounds==null)
+					bounds = new double[] { bb.x, bb.y, bb.x+bb.width, bb.y+bb.height };
+				else
+				{
+					bounds[0] = Math.min(bounds[0], bb.x);
+					bounds[1] = Math.min(bounds[1], bb.y);
+					bounds[2] = Math.max(bounds[2], bb.x+bb.width);
+					bounds[3] = Math.max(bounds[3], bb.y+bb.height);
+				}
+			}
+			return bounds;
+		}
+
+		private static double[] combine(double[] b1, double[] b2)
+		{
+			if (b1==null) return b2;
+			if (b2==null) return b1;
+			b1[0] = Math.min(b1[0], b2[0]);
+			b1[1] = Math.min(b1[1], b2[1]);
+			b1[2] = Math.max(b1[2], b2[2]);
+			b1[3] = Math.max(b1[3], b2[3]);
+			return b1;
 		}
 	}
 	
@@ -445,26 +848,6 @@ class EditorView extends ZoomableCanvas<EditorView.ViewState> {
 			return String.format(Locale.ENGLISH, "%s GuideLine @ %s:%1.2f", type, type.axis, pos);
 		}
 
-		private static GuideResult stickToGuideLines(double val, Type type, double maxDist, GuideLinesStorage guideLines) {
-			Double dist = null;
-			Double pos = null;
-			if (guideLines!=null)
-				for (GuideLine gl : guideLines.guideLines)
-					if (gl.type==type) {
-						double d = Math.abs(gl.pos-val);
-						if (d<=maxDist && (dist==null || dist>d)) {
-							dist = d;
-							pos = gl.pos;
-						}
-					}
-			if (pos!=null && dist!=null)
-				switch (type) {
-				case Horizontal: return new GuideResult(null, pos, dist);
-				case Vertical  : return new GuideResult(pos, null, dist);
-				}
-			return null;
-		}
-
 		private void draw(ViewState viewState, Graphics2D g2, int x, int y, int width, int height) {
 			switch (type) {
 			case Horizontal:
@@ -0,0 +1,230 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+
+/**
+ * Uniform grid over the bounding boxes of forms for fast range queries.
+ * <br><br>
+ * Forms are used as keys (by identity). They can be added, updated and removed one by one.
+ * The cell size is fixed when the index is built; {@link #isGridOutdated()} tells, when it should be rebuilt with a new cell size.
+ * The constructor can run on any thread with copies of the forms, all other methods have to be called on the event dispatch thread.
+ */
+class FormBoundsIndex
+{
+	private static final int MAX_CELLS_PER_FORM = 1024;
+	private static final int MIN_SIZE_FOR_REGRID = 64;
+
+	private static class Entry
+	{
+		final double minX, minY, maxX, maxY; // NaN, if the form has no bounding box
+		final boolean isOversized;
+		int stamp;
+
+		Entry(Rectangle2D.Double bb, boolean isOversized)
+		{
+			minX = bb==null ? Double.NaN : bb.x;
+			minY = bb==null ? Double.NaN : bb.y;
+			maxX = bb==null ? Double.NaN : bb.x+bb.width;
+			maxY = bb==null ? Double.NaN : bb.y+bb.height;
+			this.isOversized = isOversized;
+			stamp = 0;
+		}
+
+		boolean isInside(double rMinX, double rMinY, double rMaxX, double rMaxY)
+		{
+			return rMinX<=minX && maxX<=rMaxX && rMinY<=minY && maxY<=rMaxY;
+		}
+	}
+
+	private final double cellSize;
+	private final int builtSize; // number of forms, the cell size was computed for
+	private final IdentityHashMap<LineForm<?>, Entry> entries;
+	private final HashMap<Long, ArrayList<LineForm<?>>> cells;
+	private final Set<LineForm<?>> oversized;
+	private double extentSum;
+	private int stamp;
+
+	/** Creates an empty index. */
+	FormBoundsIndex()
+	{
+		this(new LineForm<?>[0], new Form[0]);
+	}
+
+	/**
+	 * @param keys   forms, that are added to the index; they are only used as keys
+	 * @param copies copies of <code>keys</code> (e.g. from a {@link DocumentSnapshot}), their bounding boxes are used
+	 */
+	FormBoundsIndex(LineForm<?>[] keys, Form[] copies)
+	{
+		Debug.Assert(keys.length==copies.length);
+		Rectangle2D.Double[] boxes = new Rectangle2D.Double[copies.length];
+		double sum = 0;
+		int count = 0;
+		for (int i=0; i<copies.length; i++)
+		{
+			boxes[i] = copies[i].computeBoundingBox();
+			if (boxes[i]!=null) { sum += getExtent(boxes[i]); count++; }
+		}
+		cellSize = count==0 || sum<=0 ? 1 : sum/count;
+		builtSize = keys.length;
+		entries = new IdentityHashMap<>(keys.length);
+		cells = new HashMap<>();
+		oversized = Collections.newSetFromMap(new IdentityHashMap<>());
+		extentSum = 0;
+		stamp = 0;
+		for (int i=0; i<keys.length; i++)
+			add(keys[i], boxes[i]);
+	}
+
+	int size()
+	{
+		return entries.size();
+	}
+
+	boolean contains(LineForm<?> form)
+	{
+		return entries.containsKey(form);
+	}
+
+	/** @return <code>true</code>, if the number or the average size of the forms changed by factor 2 since the index was built */
+	boolean isGridOutdated()
+	{
+		int size = entries.size();
+		if (Math.max(size, builtSize)<MIN_SIZE_FOR_REGRID) return false;
+		if (size>=2*builtSize || 2*size<builtSize) return true;
+		double averageExtent = size==0 ? 0 : extentSum/size;
+		return averageExtent>2*cellSize || 2*averageExtent<cellSize;
+	}
+
+	/** Adds <code>form</code> or updates its bounding box, if it's already in the index. */
+	void add(LineForm<?> form)
+	{
+		remove(form);
+		add(form, form.computeBoundingBox());
+	}
+
+	private void add(LineForm<?> form, Rectangle2D.Double bb)
+	{
+		boolean isOversized = bb!=null && getCellCount(bb) > MAX_CELLS_PER_FORM;
+		Entry entry = new Entry(bb, isOversized);
+		if (entries.put(form, entry)!=null) throw new IllegalStateException();
+		if (bb==null) return;
+		extentSum += getExtent(bb);
+		if (isOversized)
+			oversized.add(form);
+		else
+			forEachCell(entry.minX, entry.minY, entry.maxX, entry.maxY, key -> cells.computeIfAbsent(key, k->new ArrayList<>()).add(form));
+	}
+
+	void remove(LineForm<?> form)
+	{
+		Entry entry = entries.remove(form);
+		if (entry==null || Double.isNaN(entry.minX)) return;
+		extentSum -= Math.max(entry.maxX-entry.minX, entry.maxY-entry.minY);
+		if (entry.isOversized)
+			oversized.remove(form);
+		else
+			forEachCell(entry.minX, entry.minY, entry.maxX, entry.maxY, key -> {
+				ArrayList<LineForm<?>> cell = cells.get(key);
+				if (cell==null) return;
+				cell.remove(form);
+				if (cell.isEmpty()) cells.remove(key);
+			});
+	}
+
+	/**
+	 * Removes all forms, that aren't in <code>forms</code>.
+	 * @return the removed forms
+	 */
+	ArrayList<LineForm<?>> retainAll(Set<LineForm<?>> forms)
+	{
+		ArrayList<LineForm<?>> removed = new ArrayList<>();
+		for (LineForm<?> form : entries.keySet())
+			if (!forms.contains(form))
+				removed.add(form);
+		for (LineForm<?> form : removed)
+			remove(form);
+		return removed;
+	}
+
+	/**
+	 * Calls <code>action</code> once for each form, whose bounding box is completely inside the given rectangle.
+	 */
+	void forEachInside(double x0, double y0, double x1, double y1, Consumer<LineForm<?>> action)
+	{
+		double rMinX = Math.min(x0,x1), rMaxX = Math.max(x0,x1);
+		double rMinY = Math.min(y0,y1), rMaxY = Math.max(y0,y1);
+		stamp++;
+		for (LineForm<?> form : oversized)
+			check(form, rMinX, rMinY, rMaxX, rMaxY, action);
+		if (getCellCount(rMinX, rMinY, rMaxX, rMaxY) > cells.size())
+		{
+			for (ArrayList<LineForm<?>> cell : cells.values())
+				for (LineForm<?> form : cell)
+					check(form, rMinX, rMinY, rMaxX, rMaxY, action);
+		}
+		else
+			forEachCell(rMinX, rMinY, rMaxX, rMaxY, key -> {
+				ArrayList<LineForm<?>> cell = cells.get(key);
+				if (cell!=null)
+					for (LineForm<?> form : cell)
+						check(form, rMinX, rMinY, rMaxX, rMaxY, action);
+			});
+	}
+
+	/** @return <code>true</code>, if the bounding box of <code>form</code> is completely inside the given rectangle */
+	static boolean isInside(Form form, double x0, double y0, double x1, double y1)
+	{
+		Rectangle2D.Double bb = form.computeBoundingBox();
+		return bb!=null && new Entry(bb, false).isInside(Math.min(x0,x1), Math.min(y0,y1), Math.max(x0,x1), Math.max(y0,y1));
+	}
+
+	private void check(LineForm<?> form, double rMinX, double rMinY, double rMaxX, double rMaxY, Consumer<LineForm<?>> action)
+	{
+		Entry entry = entries.get(form);
+		if (entry.stamp==stamp) return;
+		entry.stamp = stamp;
+		if (entry.isInside(rMinX, rMinY, rMaxX, rMaxY)) action.accept(form);
+	}
+
+	private static double getExtent(Rectangle2D.Double bb)
+	{
+		return Math.max(bb.width, bb.height);
+	}
+
+	private double getCellCount(Rectangle2D.Double bb)
+	{
+		return getCellCount(bb.x, bb.y, bb.x+bb.width, bb.y+bb.height);
+	}
+
+	private double getCellCount(double minX, double minY, double maxX, double maxY)
+	{
+		double cellsX = Math.floor(maxX/cellSize) - Math.floor(minX/cellSize) + 1;
+		double cellsY = Math.floor(maxY/cellSize) - Math.floor(minY/cellSize) + 1;
+		return cellsX*cellsY;
+	}
+
+	private interface CellAction
+	{
+		void accept(long key);
+	}
+
+	private void forEachCell(double minX, double minY, double maxX, double maxY, CellAction action)
+	{
+		long cx0 = (long) Math.floor(minX/cellSize);
+		long cy0 = (long) Math.floor(minY/cellSize);
+		long cx1 = (long) Math.floor(maxX/cellSize);
+		long cy1 = (long) Math.floor(maxY/cellSize);
+		for (long cx=cx0; cx<=cx1; cx++)
+			for (long cy=cy0; cy<=cy1; cy++)
+				action.accept((cx<<32) ^ (cy & 0xFFFFFFFFL));
+	}
+}
@@ -0,0 +1,91 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+
+import javax.swing.Timer;
+
+/**
+ * Runs a task at most once per frame on the event dispatch thread.
+ * If a task is scheduled while the last run is less than a frame ago, it replaces any pending task and runs at the end of the frame.
+ */
+class FrameThrottle
+{
+	private static final int DEFAULT_REFRESH_RATE = 60;
+
+	private final Timer timer;
+	private final long intervalNanos;
+	private long lastRun;
+	private Runnable pendingTask;
+
+	FrameThrottle()
+	{
+		this(getFrameIntervalMillis());
+	}
+
+	FrameThrottle(int intervalMillis)
+	{
+		intervalNanos = intervalMillis*1000000L;
+		timer = new Timer(intervalMillis, e->runPendingTask());
+		timer.setRepeats(false);
+		lastRun = System.nanoTime()-intervalNanos;
+		pendingTask = null;
+	}
+
+	static int getFrameIntervalMillis()
+	{
+		int refreshRate = DEFAULT_REFRESH_RATE;
+		if (!GraphicsEnvironment.isHeadless())
+		{
+			DisplayMode displayMode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+			if (displayMode!=null && displayMode.getRefreshRate()!=DisplayMode.REFRESH_RATE_UNKNOWN)
+				refreshRate = displayMode.getRefreshRate();
+		}
+		return Math.max(1, 1000/refreshRate);
+	}
+
+	/**
+	 * Schedules <code>task</code>. Call it on the event dispatch thread.
+	 * @return <code>true</code>, if an earlier pending task was replaced (and so was dropped)
+	 */
+	boolean schedule(Runnable task)
+	{
+		boolean replaced = pendingTask!=null;
+		pendingTask = task;
+		if (!timer.isRunning())
+		{
+			long remaining = intervalNanos - (System.nanoTime()-lastRun);
+			if (remaining<=0)
+				runPendingTask();
+			else
+			{
+				timer.setInitialDelay((int) Math.max(1, remaining/1000000L));
+				timer.restart();
+			}
+		}
+		return replaced;
+	}
+
+	/** Runs a pending task immediately. */
+	void flush()
+	{
+		timer.stop();
+		runPendingTask();
+	}
+
+	/** Drops a pending task. */
+	void cancel()
+	{
+		timer.stop();
+		pendingTask = null;
+	}
+
+	private void runPendingTask()
+	{
+		Runnable task = pendingTask;
+		pendingTask = null;
+		if (task==null) return;
+		lastRun = System.nanoTime();
+		task.run();
+	}
+}
@@ -0,0 +1,194 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings of the frames painted by the editor view.
+ * <br><br>
+ * Every frame is split into {@link Phase}s and the time of each phase and of each {@link EditorViewFeature} is recorded in a {@link Histogram}.
+ * Recording is done on the event dispatch thread. Histograms can be read by any thread ({@link #getPhaseHistogram(Phase)}, {@link #getFeatureHistogram(int)})
+ * or a {@link Listener} gets the timings of each frame.
+ * <br><br>
+ * Recording is disabled by default ({@link #setEnabled(boolean)}).
+ */
+public final class FrameTimings
+{
+	public enum Phase { Total, Features, GuideLines, MapDecoration, Forms, Selection, Highlights, AreaSelection }
+
+	public interface Listener
+	{
+		/**
+		 * Is called on the event dispatch thread after each painted frame.
+		 * @param phaseNanos   duration of each phase, indexed by {@link Phase#ordinal()}
+		 * @param featureNanos duration of each feature's <code>draw</code> call, indexed like {@link #getFeatures()}
+		 */
+		void frameFinished(long[] phaseNanos, long[] featureNanos);
+	}
+
+	private final EditorViewFeature[] features;
+	private final Histogram[] phaseHistograms;
+	private final Histogram[] featureHistograms;
+	private final CopyOnWriteArrayList<Listener> listeners;
+	private final long[] phaseNanos;
+	private final long[] featureNanos;
+	private volatile boolean enabled;
+	private boolean recording;
+	private long frameStart;
+	private long phaseStart;
+	private Phase currentPhase;
+
+	FrameTimings(EditorViewFeature[] features)
+	{
+		this.features = features.clone();
+		phaseHistograms = new Histogram[Phase.values().length];
+		for (int i=0; i<phaseHistograms.length; i++)
+			phaseHistograms[i] = new Histogram();
+		featureHistograms = new Histogram[features.length];
+		for (int i=0; i<featureHistograms.length; i++)
+			featureHistograms[i] = new Histogram();
+		listeners = new CopyOnWriteArrayList<>();
+		phaseNanos = new long[phaseHistograms.length];
+		featureNanos = new long[featureHistograms.length];
+		enabled = false;
+		recording = false;
+		currentPhase = null;
+	}
+
+	public boolean isEnabled() { return enabled; }
+	public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+	public void addListener   (Listener listener) { listeners.add   (listener); }
+	public void removeListener(Listener listener) { listeners.remove(listener); }
+
+	public EditorViewFeature[] getFeatures() { return features.clone(); }
+	public Histogram getPhaseHistogram(Phase phase) { return phaseHistograms[phase.ordinal()]; }
+	public Histogram getFeatureHistogram(int featureIndex) { return featureHistograms[featureIndex]; }
+
+	public void reset()
+	{
+		for (Histogram h : phaseHistograms  ) h.reset();
+		for (Histogram h : featureHistograms) h.reset();
+	}
+
+	// ---------------------------------------------------------------------------------
+	// recording (event dispatch thread)
+
+	/** Starts a frame. If recording is disabled, all other recording methods do nothing until the next frame. */
+	void startFrame()
+	{
+		recording = enabled;
+		if (!recording) return;
+		Arrays.fill(phaseNanos, 0);
+		Arrays.fill(featureNanos, 0);
+		frameStart = phaseStart = System.nanoTime();
+		currentPhase = null;
+	}
+
+	void startPhase(Phase phase)
+	{
+		if (!recording) return;
+		long now = System.nanoTime();
+		if (currentPhase!=null) phaseNanos[currentPhase.ordinal()] += now-phaseStart;
+		currentPhase = phase;
+		phaseStart = now;
+	}
+
+	/** @return start time for {@link #endFeature(int, long)} */
+	long startFeature()
+	{
+		return recording ? System.nanoTime() : 0;
+	}
+
+	void endFeature(int featureIndex, long start)
+	{
+		if (!recording) return;
+		featureNanos[featureIndex] += System.nanoTime()-start;
+	}
+
+	void endFrame()
+	{
+		if (!recording) return;
+		recording = false;
+		long now = System.nanoTime();
+		if (currentPhase!=null) phaseNanos[currentPhase.ordinal()] += now-phaseStart;
+		currentPhase = null;
+		phaseNanos[Phase.Total.ordinal()] = now-frameStart;
+
+		for (int i=0; i<phaseNanos.length; i++)
+			phaseHistograms[i].record(phaseNanos[i]);
+		for (int i=0; i<featureNanos.length; i++)
+			featureHistograms[i].record(featureNanos[i]);
+
+		if (!listeners.isEmpty())
+		{
+			long[] phases = phaseNanos.clone();
+			long[] featureTimes = featureNanos.clone();
+			for (Listener listener : listeners)
+				listener.frameFinished(phases, featureTimes);
+		}
+	}
+
+	/**
+	 * Histogram of durations with buckets of powers of 2 nanoseconds.
+	 * Bucket <code>i</code> counts durations from 2<sup>i-1</sup> (inclusive) to 2<sup>i</sup> ns (exclusive), bucket 0 counts durations of 0 ns.
+	 */
+	public static final class Histogram
+	{
+		public static final int BUCKET_COUNT = 64;
+
+		private final AtomicLongArray buckets;
+		private final AtomicLongArray sums; // [count, total nanos, max nanos]
+
+		private Histogram()
+		{
+			buckets = new AtomicLongArray(BUCKET_COUNT);
+			sums = new AtomicLongArray(3);
+		}
+
+		private void record(long nanos)
+		{
+			if (nanos<0) nanos = 0;
+			buckets.incrementAndGet(64-Long.numberOfLeadingZeros(nanos));
+			sums.incrementAndGet(0);
+			sums.addAndGet(1, nanos);
+			if (nanos>sums.get(2)) sums.set(2, nanos); // only recorded by the event dispatch thread
+		}
+
+		private void reset()
+		{
+			for (int i=0; i<BUCKET_COUNT; i++) buckets.set(i, 0);
+			for (int i=0; i<3; i++) sums.set(i, 0);
+		}
+
+		public long getCount     () { return sums.get(0); }
+		public long getTotalNanos() { return sums.get(1); }
+		public long getMaxNanos  () { return sums.get(2); }
+
+		public long[] getBucketCounts()
+		{
+			long[] counts = new long[BUCKET_COUNT];
+			for (int i=0; i<BUCKET_COUNT; i++) counts[i] = buckets.get(i);
+			return counts;
+		}
+
+		/** @return upper bound (in ns) of the bucket, that contains the given percentile (0..100), or 0, if nothing was recorded */
+		public long getPercentileNanos(double percentile)
+		{
+			long[] counts = getBucketCounts();
+			long total = 0;
+			for (long c : counts) total += c;
+			if (total==0) return 0;
+			long rank = (long) Math.ceil(total*Math.max(0, Math.min(100, percentile))/100);
+			long sum = 0;
+			for (int i=0; i<BUCKET_COUNT; i++)
+			{
+				sum += counts[i];
+				if (sum>=Math.max(1, rank))
+					return i==0 ? 0 : i>=63 ? Long.MAX_VALUE : (1L<<i)-1;
+			}
+			return Long.MAX_VALUE;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs geometry jobs on a background thread with the {@link DocumentSnapshot}s of a {@link LineEditor}.
+ * <br><br>
+ * A job gets the snapshot, that is current when the job is submitted.
+ * Its result is delivered on the event dispatch thread only if this snapshot is still current
+ * and no newer job with the same key was submitted in the meantime.
+ * Forms aren't copied here, the snapshots are shared with all other readers.
+ * Other background tasks of the editor (e.g. updates of the {@link IntersectionIndex}) run on the same thread with {@link #execute(Runnable)}.
+ * <br><br>
+ * All methods have to be called on the event dispatch thread.
+ * {@link #dispose()} stops the background thread.
+ */
+class GeometryWorker
+{
+	private final Supplier<CompletableFuture<DocumentSnapshot>> snapshots;
+	private final ExecutorService executor;
+	private final HashMap<String, Future<?>> pendingJobs;
+	private final HashMap<String, Long> latestTickets;
+	private long nextTicket;
+
+	/**
+	 * @param snapshots returns the current snapshot (e.g. {@link LineEditor#getSnapshotAsync()})
+	 */
+	GeometryWorker(Supplier<CompletableFuture<DocumentSnapshot>> snapshots)
+	{
+		this.snapshots = snapshots;
+		pendingJobs = new HashMap<>();
+		latestTickets = new HashMap<>();
+		nextTicket = 0;
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "LineEditor.GeometryWorker");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** Stops the background thread. Pending jobs are cancelled and no more results are delivered. */
+	void dispose()
+	{
+		executor.shutdownNow();
+		pendingJobs.clear();
+		latestTickets.clear();
+	}
+
+	/**
+	 * Runs <code>task</code> on the background thread, in order with all other tasks and jobs.
+	 */
+	void execute(Runnable task)
+	{
+		if (executor.isShutdown()) return;
+		executor.execute(() -> {
+			try {
+				task.run();
+			} catch (Throwable e) {
+				System.err.printf("GeometryWorker: Task failed: %s%n", e);
+			}
+		});
+	}
+
+	/**
+	 * Runs <code>job</code> with the current snapshot on the background thread.
+	 * A pending job with the same <code>key</code> is cancelled.
+	 * <code>onResult</code> is called on the event dispatch thread, if the result is still current.
+	 */
+	<R> void submit(String key, Function<DocumentSnapshot, R> job, Consumer<R> onResult)
+	{
+		submit(key, job, onResult, true);
+	}
+
+	/**
+	 * Like {@link #submit(String, Function, Consumer)}, but <code>onResult</code> also gets results of outdated snapshots
+	 * and <code>null</code>, if the job failed. The caller has to bring the result up to date itself.
+	 */
+	<R> void submitAnyVersion(String key, Function<DocumentSnapshot, R> job, Consumer<R> onResult)
+	{
+		submit(key, job, onResult, false);
+	}
+
+	private <R> void submit(String key, Function<DocumentSnapshot, R> job, Consumer<R> onResult, boolean onlyIfCurrent)
+	{
+		if (executor.isShutdown()) return;
+		CompletableFuture<DocumentSnapshot> snapshot = snapshots.get();
+		long ticket = ++nextTicket;
+		latestTickets.put(key, ticket);
+		Future<?> pending = pendingJobs.remove(key);
+		if (pending!=null) pending.cancel(false);
+
+		pendingJobs.put(key, executor.submit(() -> {
+			DocumentSnapshot forms;
+			R result;
+			try {
+				forms = snapshot.join(); // waits, if the forms are still copied
+				result = job.apply(forms);
+			} catch (Throwable e) {
+				System.err.printf("GeometryWorker: Job \"%s\" failed: %s%n", key, e);
+				SwingUtilities.invokeLater(() -> {
+					if (finishJob(key, ticket) && !onlyIfCurrent) onResult.accept(null);
+				});
+				return;
+			}
+			SwingUtilities.invokeLater(() -> {
+				if (!finishJob(key, ticket)) return; // a newer job was submitted
+				if (onlyIfCurrent && !isCurrent(forms)) return; // forms were changed in the meantime
+				onResult.accept(result);
+			});
+		}));
+	}
+
+	/** @return <code>true</code>, if the job was the latest job of <code>key</code> */
+	private boolean finishJob(String key, long ticket)
+	{
+		Long latestTicket = latestTickets.get(key);
+		if (latestTicket==null || latestTicket.longValue()!=ticket) return false;
+		latestTickets.remove(key);
+		pendingJobs.remove(key);
+		return true;
+	}
+
+	private boolean isCurrent(DocumentSnapshot forms)
+	{
+		DocumentSnapshot current = snapshots.get().getNow(null);
+		return current!=null && current.getVersion()==forms.getVersion();
+	}
+}
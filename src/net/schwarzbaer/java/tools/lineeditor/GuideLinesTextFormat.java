@@ -0,0 +1,204 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import net.schwarzbaer.java.tools.lineeditor.EditorView.GuideLine;
+
+/**
+ * Reads and writes guide lines in the text format <code>GuideLine.&lt;Type&gt;=&lt;pos&gt;</code> (one line per guide line).
+ */
+class GuideLinesTextFormat
+{
+	private static final GuideLine.Type[] TYPES = GuideLine.Type.values();
+	private static final char[][] PREFIXES = new char[TYPES.length][];
+	static {
+		for (GuideLine.Type type : TYPES)
+			PREFIXES[type.ordinal()] = String.format("GuideLine.%s=", type.name()).toCharArray();
+	}
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	private static final int BUFFER_SIZE = 1<<16;
+	private static final long MAX_EXACT_MANTISSA = 1L<<53;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	interface ErrorHandler
+	{
+		void numberFormatError(CharSequence value, CharSequence line);
+	}
+
+	/**
+	 * Parses one line.
+	 * @return the guide line or <code>null</code>, if the line doesn't start with a guide line prefix or has no valid number
+	 */
+	static GuideLine parseLine(String line, ErrorHandler errorHandler)
+	{
+		char[] chars = line.toCharArray();
+		return parseLine(chars, 0, chars.length, errorHandler);
+	}
+
+	private static GuideLine parseLine(char[] chars, int start, int end, ErrorHandler errorHandler)
+	{
+		for (GuideLine.Type type : TYPES)
+		{
+			char[] prefix = PREFIXES[type.ordinal()];
+			if (startsWith(chars, start, end, prefix))
+			{
+				int valueStart = start+prefix.length;
+				double pos = parseDouble(chars, valueStart, end);
+				if (Double.isNaN(pos) && !isNaNLiteral(chars, valueStart, end))
+				{
+					if (errorHandler!=null)
+						errorHandler.numberFormatError(new String(chars, valueStart, end-valueStart), new String(chars, start, end-start));
+					return null;
+				}
+				return new GuideLine(type, pos);
+			}
+		}
+		return null;
+	}
+
+	private static boolean startsWith(char[] chars, int start, int end, char[] prefix)
+	{
+		if (end-start<prefix.length) return false;
+		for (int i=0; i<prefix.length; i++)
+			if (chars[start+i]!=prefix[i])
+				return false;
+		return true;
+	}
+
+	private static boolean isNaNLiteral(char[] chars, int start, int end)
+	{
+		// like Double.parseDouble: optional sign before "NaN"
+		String text = new String(chars, start, end-start).trim();
+		if (text.startsWith("+") || text.startsWith("-")) text = text.substring(1);
+		return text.equals("NaN");
+	}
+
+	/**
+	 * Parses a decimal number without allocation, if mantissa and exponent allow an exact result.
+	 * Otherwise it falls back to {@link Double#parseDouble(String)}.
+	 * @return the parsed value or {@link Double#NaN}, if the text isn't a valid number
+	 */
+	static double parseDouble(char[] chars, int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if (i<end && (chars[i]=='-' || chars[i]=='+')) negative = chars[i++]=='-';
+
+		long mantissa = 0;
+		int digits = 0;
+		int exp10 = 0;
+		boolean hasDigits = false;
+		for (; i<end && '0'<=chars[i] && chars[i]<='9'; i++, hasDigits = true)
+			if (digits<18) { mantissa = mantissa*10 + (chars[i]-'0'); if (mantissa>0) digits++; }
+			else return parseDoubleSlow(chars, start, end);
+		if (i<end && chars[i]=='.')
+			for (i++; i<end && '0'<=chars[i] && chars[i]<='9'; i++, hasDigits = true)
+				if (digits<18) { mantissa = mantissa*10 + (chars[i]-'0'); if (mantissa>0) digits++; exp10--; }
+				else return parseDoubleSlow(chars, start, end);
+		if (!hasDigits) return parseDoubleSlow(chars, start, end);
+
+		if (i<end && (chars[i]=='e' || chars[i]=='E'))
+		{
+			i++;
+			boolean negativeExp = false;
+			if (i<end && (chars[i]=='-' || chars[i]=='+')) negativeExp = chars[i++]=='-';
+			int exp = 0;
+			int expStart = i;
+			for (; i<end && '0'<=chars[i] && chars[i]<='9' && exp<1000; i++)
+				exp = exp*10 + (chars[i]-'0');
+			if (i==expStart) return parseDoubleSlow(chars, start, end);
+			exp10 += negativeExp ? -exp : exp;
+		}
+		if (i!=end || mantissa>=MAX_EXACT_MANTISSA || exp10<-22 || exp10>22)
+			return parseDoubleSlow(chars, start, end);
+
+		double value = exp10<0 ? mantissa / POWERS_OF_TEN[-exp10] : mantissa * POWERS_OF_TEN[exp10];
+		return negative ? -value : value;
+	}
+
+	private static double parseDoubleSlow(char[] chars, int start, int end)
+	{
+		try {
+			return Double.parseDouble(new String(chars, start, end-start));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Reads all guide lines from <code>in</code>. Lines without a guide line prefix are ignored.
+	 */
+	static void read(Reader in, Consumer<GuideLine> action, ErrorHandler errorHandler) throws IOException
+	{
+		char[] buffer = new char[BUFFER_SIZE];
+		int length = 0;
+		boolean skipLF = false;
+		while (true)
+		{
+			if (length==buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length*2);
+			int n = in.read(buffer, length, buffer.length-length);
+			if (n<0) break;
+			int end = length+n;
+
+			int lineStart = 0;
+			for (int i=length; i<end; i++)
+			{
+				char ch = buffer[i];
+				if (ch=='\n' || ch=='\r')
+				{
+					if (ch=='\n' && skipLF && i==lineStart) { lineStart = i+1; skipLF = false; continue; }
+					parseLine(buffer, lineStart, i, action, errorHandler);
+					skipLF = ch=='\r';
+					lineStart = i+1;
+				}
+				else
+					skipLF = false;
+			}
+
+			length = end-lineStart;
+			System.arraycopy(buffer, lineStart, buffer, 0, length);
+		}
+		if (length>0)
+			parseLine(buffer, 0, length, action, errorHandler);
+	}
+
+	private static void parseLine(char[] chars, int start, int end, Consumer<GuideLine> action, ErrorHandler errorHandler)
+	{
+		GuideLine gl = parseLine(chars, start, end, errorHandler);
+		if (gl!=null) action.accept(gl);
+	}
+
+	/**
+	 * Writes all guide lines to <code>out</code> in blocks.
+	 */
+	static void write(Appendable out, Iterable<GuideLine> guideLines) throws IOException
+	{
+		StringBuilder sb = new StringBuilder(BUFFER_SIZE+64);
+		for (GuideLine gl : guideLines)
+		{
+			append(sb, gl);
+			if (sb.length()>=BUFFER_SIZE)
+			{
+				out.append(sb);
+				sb.setLength(0);
+			}
+		}
+		if (sb.length()>0)
+			out.append(sb);
+		if (out instanceof Writer)
+			((Writer) out).flush();
+	}
+
+	private static void append(StringBuilder sb, GuideLine gl)
+	{
+		sb.append(PREFIXES[gl.type.ordinal()]).append(gl.pos).append(LINE_SEPARATOR);
+	}
+}
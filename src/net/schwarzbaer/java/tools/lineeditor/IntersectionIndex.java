@@ -0,0 +1,596 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.lib.image.linegeometry.Math2;
+
+/**
+ * Index of all intersection points between lines, polyline segments and arcs of different forms.
+ * <br><br>
+ * Segments and arcs are registered in a uniform grid, so that only primitives in the same grid cells are tested against each other.
+ * The cell size is the average extent of the primitives. The grid is rebuilt, if their number or average extent changed by factor 2 since then.
+ * The geometry of the forms is copied on the event dispatch thread, all computations run on the thread of a {@link GeometryWorker}.
+ * After each change a new {@link Points} object is published, that can be read by {@link #getPoints()} from any thread.
+ * It shares all chunks of points, that weren't touched by the change, with the previous one.
+ */
+class IntersectionIndex
+{
+	private static final int MAX_CELLS_PER_PRIMITIVE = 4096;
+	private static final int CHUNK_SHIFT = 6;
+	private static final int CHUNK_SIZE = 1<<CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE-1;
+
+	private final GeometryWorker worker;
+	private volatile Points points;
+	private volatile GridStatistics gridStatistics;
+
+	// only accessed by event dispatch thread
+	private final Set<LineForm<?>> knownForms;
+
+	// only accessed by background thread
+	private final IdentityHashMap<Object, Primitive[]> primitivesByOwner;
+	private final IdentityHashMap<Object, ArrayList<Intersection>> intersectionsByOwner;
+	private final HashMap<Long, ArrayList<Primitive>> cells;
+	private final ArrayList<Primitive> oversized;
+	private final ArrayList<Intersection> slots; // intersection at each index of the points
+	private Chunk[] chunks;
+	private int generation; // chunks of older generations are published and mustn't be changed anymore
+	private double cellSize;
+	private int gridPrimitives; // number of primitives, the cell size was computed for
+	private int primitiveCount;
+	private double extentSum;
+	private long cellEntries;
+	private int stamp;
+
+	IntersectionIndex(GeometryWorker worker)
+	{
+		this.worker = worker;
+		points = Points.EMPTY;
+		gridStatistics = new GridStatistics(0, 0, 0, 1);
+		knownForms = Collections.newSetFromMap(new IdentityHashMap<>());
+		primitivesByOwner = new IdentityHashMap<>();
+		intersectionsByOwner = new IdentityHashMap<>();
+		cells = new HashMap<>();
+		oversized = new ArrayList<>();
+		slots = new ArrayList<>();
+		chunks = new Chunk[0];
+		generation = 0;
+		cellSize = 1;
+		gridPrimitives = 0;
+		primitiveCount = 0;
+		extentSum = 0;
+		cellEntries = 0;
+		stamp = 0;
+	}
+
+	/**
+	 * Size of the grid at a certain time.
+	 * @param cellEntries sum of the number of cells of all primitives, that aren't oversized
+	 */
+	record GridStatistics(int primitives, int oversized, long cellEntries, double cellSize) {}
+
+	/**
+	 * All intersection points, that were known at a certain time.
+	 * Point <code>i</code> at (<code>x(i)</code>,<code>y(i)</code>) is an intersection of two forms, see {@link #involves(int, Object)}.
+	 */
+	static class Points
+	{
+		static final Points EMPTY = new Points(new Chunk[0], 0);
+
+		private final Chunk[] chunks;
+		private final int size;
+
+		private Points(Chunk[] chunks, int size)
+		{
+			this.chunks = chunks;
+			this.size = size;
+		}
+
+		int size() { return size; }
+		double x(int i) { return chunks[i>>CHUNK_SHIFT].xs[i & CHUNK_MASK]; }
+		double y(int i) { return chunks[i>>CHUNK_SHIFT].ys[i & CHUNK_MASK]; }
+		boolean involves(int i, Object owner)
+		{
+			Chunk chunk = chunks[i>>CHUNK_SHIFT];
+			return chunk.ownersA[i & CHUNK_MASK]==owner || chunk.ownersB[i & CHUNK_MASK]==owner;
+		}
+	}
+
+	private static class Chunk
+	{
+		final int generation;
+		final double[] xs;
+		final double[] ys;
+		final Object[] ownersA;
+		final Object[] ownersB;
+
+		Chunk(int generation)
+		{
+			this.generation = generation;
+			xs = new double[CHUNK_SIZE];
+			ys = new double[CHUNK_SIZE];
+			ownersA = new Object[CHUNK_SIZE];
+			ownersB = new Object[CHUNK_SIZE];
+		}
+
+		Chunk(Chunk chunk, int generation)
+		{
+			this.generation = generation;
+			xs = chunk.xs.clone();
+			ys = chunk.ys.clone();
+			ownersA = chunk.ownersA.clone();
+			ownersB = chunk.ownersB.clone();
+		}
+	}
+
+	/** @return the intersection points of the last finished computation */
+	Points getPoints()
+	{
+		return points;
+	}
+
+	/** @return the grid statistics of the last finished computation */
+	GridStatistics getGridStatistics()
+	{
+		return gridStatistics;
+	}
+
+	/**
+	 * Sets the current forms list. Call it on the event dispatch thread.
+	 * Only added and removed forms are processed, unless the list has no form in common with the previous one.
+	 */
+	void setForms(LineForm<?>[] forms)
+	{
+		if (forms==null) forms = new LineForm<?>[0];
+		Set<LineForm<?>> newForms = Collections.newSetFromMap(new IdentityHashMap<>());
+		newForms.addAll(Arrays.asList(forms));
+
+		ArrayList<LineForm<?>> removed = new ArrayList<>();
+		for (LineForm<?> form : knownForms)
+			if (!newForms.contains(form))
+				removed.add(form);
+
+		boolean rebuild = removed.size()==knownForms.size();
+		ArrayList<Primitive[]> added = new ArrayList<>();
+		for (LineForm<?> form : forms)
+			if (rebuild || !knownForms.contains(form))
+				added.add(createPrimitives(form));
+
+		knownForms.clear();
+		knownForms.addAll(newForms);
+
+		Object[] removedOwners = removed.toArray();
+		worker.execute(() -> {
+			if (rebuild)
+				rebuild(added);
+			else
+			{
+				for (Object owner : removedOwners)
+					removeOwner(owner);
+				addOwners(added);
+			}
+			publish();
+		});
+	}
+
+	/**
+	 * Adds <code>forms[start..]</code>, that were appended to the current forms list. Call it on the event dispatch thread.
+	 */
+	void addForms(LineForm<?>[] forms, int start)
+	{
+		ArrayList<Primitive[]> added = new ArrayList<>();
+		for (int i=start; i<forms.length; i++)
+			if (knownForms.add(forms[i]))
+				added.add(createPrimitives(forms[i]));
+		if (added.isEmpty()) return;
+
+		worker.execute(() -> {
+			addOwners(added);
+			publish();
+		});
+	}
+
+	/**
+	 * Recomputes the intersections of <code>forms</code> after their geometry was changed. Call it on the event dispatch thread.
+	 */
+	void update(LineForm<?>... forms)
+	{
+		ArrayList<Primitive[]> changed = new ArrayList<>();
+		for (LineForm<?> form : forms)
+			if (form!=null && knownForms.contains(form))
+				changed.add(createPrimitives(form));
+		if (changed.isEmpty()) return;
+
+		worker.execute(() -> {
+			for (Primitive[] primitives : changed)
+				if (primitives.length>0) removeOwner(primitives[0].owner);
+			addOwners(changed);
+			publish();
+		});
+	}
+
+	private static Primitive[] createPrimitives(LineForm<?> form)
+	{
+		if (form instanceof Form.Line)
+		{
+			Form.Line line = (Form.Line) form;
+			return new Primitive[] { Primitive.createSegment(form, line.x1, line.y1, line.x2, line.y2) };
+		}
+		if (form instanceof Form.PolyLine)
+		{
+			Form.PolyLine polyLine = (Form.PolyLine) form;
+			int n = polyLine.points.size();
+			if (n<2) return new Primitive[] { Primitive.createEmpty(form) };
+			Primitive[] primitives = new Primitive[n-1];
+			Form.PolyLine.Point p1 = polyLine.points.get(0);
+			for (int i=1; i<n; i++)
+			{
+				Form.PolyLine.Point p2 = polyLine.points.get(i);
+				primitives[i-1] = Primitive.createSegment(form, p1.x, p1.y, p2.x, p2.y);
+				p1 = p2;
+			}
+			return primitives;
+		}
+		if (form instanceof Form.Arc)
+		{
+			Form.Arc arc = (Form.Arc) form;
+			return new Primitive[] { Primitive.createArc(form, arc.xC, arc.yC, arc.r, arc.aStart, arc.aEnd) };
+		}
+		return new Primitive[] { Primitive.createEmpty(form) };
+	}
+
+	private static class Primitive
+	{
+		final Object owner;
+		final boolean isArc;
+		final boolean isEmpty;
+		// segment: (x1,y1)-(x2,y2) ; arc: center (x1,y1), radius r, angles aStart..aEnd
+		final double x1, y1, x2, y2, r, aStart, aEnd;
+		final double minX, minY, maxX, maxY;
+		int stamp;
+
+		private Primitive(Object owner, boolean isArc, boolean isEmpty, double x1, double y1, double x2, double y2, double r, double aStart, double aEnd, double minX, double minY, double maxX, double maxY)
+		{
+			this.owner = owner;
+			this.isArc = isArc;
+			this.isEmpty = isEmpty;
+			this.x1 = x1; this.y1 = y1;
+			this.x2 = x2; this.y2 = y2;
+			this.r = r; this.aStart = aStart; this.aEnd = aEnd;
+			this.minX = minX; this.minY = minY;
+			this.maxX = maxX; this.maxY = maxY;
+			stamp = 0;
+		}
+
+		static Primitive createEmpty(Object owner)
+		{
+			return new Primitive(owner, false, true, 0,0,0,0, 0,0,0, 0,0,0,0);
+		}
+
+		static Primitive createSegment(Object owner, double x1, double y1, double x2, double y2)
+		{
+			return new Primitive(owner, false, false, x1,y1,x2,y2, 0,0,0, Math.min(x1,x2), Math.min(y1,y2), Math.max(x1,x2), Math.max(y1,y2));
+		}
+
+		static Primitive createArc(Object owner, double xC, double yC, double r, double aStart, double aEnd)
+		{
+			// bounding box of the full circle is good enough for the grid
+			return new Primitive(owner, true, false, xC,yC,0,0, r,aStart,aEnd, xC-r, yC-r, xC+r, yC+r);
+		}
+
+		double width () { return maxX-minX; }
+		double height() { return maxY-minY; }
+		double extent() { return Math.max(width(), height()); }
+	}
+
+	private static class Intersection
+	{
+		final Primitive a, b;
+		final double x, y;
+		boolean isRemoved;
+		int slot;
+
+		Intersection(Primitive a, Primitive b, double x, double y)
+		{
+			this.a = a;
+			this.b = b;
+			this.x = x;
+			this.y = y;
+			isRemoved = false;
+			slot = -1;
+		}
+	}
+
+	private void rebuild(ArrayList<Primitive[]> allPrimitives)
+	{
+		primitivesByOwner.clear();
+		intersectionsByOwner.clear();
+		cells.clear();
+		oversized.clear();
+		slots.clear();
+		chunks = new Chunk[0]; // published chunks are kept unchanged
+		primitiveCount = 0;
+		extentSum = 0;
+		cellEntries = 0;
+
+		double sum = 0;
+		int count = 0;
+		for (Primitive[] primitives : allPrimitives)
+			for (Primitive p : primitives)
+				if (!p.isEmpty) { sum += p.extent(); count++; }
+		cellSize = count==0 || sum<=0 ? 1 : sum/count;
+		gridPrimitives = count;
+
+		for (Primitive[] primitives : allPrimitives)
+			addOwner(primitives);
+	}
+
+	/**
+	 * Adds the primitives of new forms. If the grid doesn't fit to the number or the size of all primitives anymore
+	 * (e.g. while an import fills an empty list), the whole index is rebuilt with a new cell size.
+	 * So each rebuild follows at least as many added primitives as it processes.
+	 */
+	private void addOwners(ArrayList<Primitive[]> added)
+	{
+		int count = primitiveCount;
+		double sum = extentSum;
+		for (Primitive[] primitives : added)
+			for (Primitive p : primitives)
+				if (!p.isEmpty) { sum += p.extent(); count++; }
+
+		if (isGridOutdated(count, sum))
+		{
+			ArrayList<Primitive[]> allPrimitives = new ArrayList<>(primitivesByOwner.values());
+			allPrimitives.addAll(added);
+			rebuild(allPrimitives);
+		}
+		else
+			for (Primitive[] primitives : added)
+				addOwner(primitives);
+	}
+
+	private boolean isGridOutdated(int count, double sum)
+	{
+		if (count==0 || sum<=0) return false;
+		if (count>=2*gridPrimitives || 2*count<gridPrimitives) return true;
+		double averageExtent = sum/count;
+		return averageExtent>2*cellSize || 2*averageExtent<cellSize;
+	}
+
+	private void addOwner(Primitive[] primitives)
+	{
+		if (primitives.length==0) return;
+		Object owner = primitives[0].owner;
+		primitivesByOwner.put(owner, primitives);
+		intersectionsByOwner.put(owner, new ArrayList<>());
+
+		for (Primitive p : primitives)
+		{
+			if (p.isEmpty) continue;
+			stamp++;
+			for (Primitive other : oversized)
+				testCandidate(p, other);
+			if (isOversized(p))
+			{
+				for (ArrayList<Primitive> cell : cells.values())
+					for (Primitive other : cell)
+						testCandidate(p, other);
+			}
+			else
+				forEachCell(p, (cx,cy) -> {
+					ArrayList<Primitive> cell = cells.get(cellKey(cx,cy));
+					if (cell!=null)
+						for (Primitive other : cell)
+							testCandidate(p, other);
+				});
+		}
+
+		for (Primitive p : primitives)
+		{
+			if (p.isEmpty) continue;
+			primitiveCount++;
+			extentSum += p.extent();
+			if (isOversized(p))
+				oversized.add(p);
+			else
+				forEachCell(p, (cx,cy) -> {
+					cells.computeIfAbsent(cellKey(cx,cy), k->new ArrayList<>()).add(p);
+					cellEntries++;
+				});
+		}
+	}
+
+	private void testCandidate(Primitive p, Primitive other)
+	{
+		if (other.stamp==stamp || other.owner==p.owner) return;
+		other.stamp = stamp;
+		if (p.maxX<other.minX || other.maxX<p.minX || p.maxY<other.minY || other.maxY<p.minY) return;
+
+		if (!p.isArc && !other.isArc) intersectSegments(p, other);
+		else if (p.isArc && other.isArc) intersectArcs(p, other);
+		else if (p.isArc) intersectSegmentWithArc(other, p);
+		else intersectSegmentWithArc(p, other);
+	}
+
+	private void removeOwner(Object owner)
+	{
+		Primitive[] primitives = primitivesByOwner.remove(owner);
+		if (primitives==null) return;
+
+		for (Primitive p : primitives)
+		{
+			if (p.isEmpty) continue;
+			primitiveCount--;
+			extentSum -= p.extent();
+			if (isOversized(p))
+				oversized.remove(p);
+			else
+				forEachCell(p, (cx,cy) -> {
+					Long key = cellKey(cx,cy);
+					ArrayList<Primitive> cell = cells.get(key);
+					if (cell==null) return;
+					if (cell.remove(p)) cellEntries--;
+					if (cell.isEmpty()) cells.remove(key);
+				});
+		}
+
+		ArrayList<Intersection> intersections = intersectionsByOwner.remove(owner);
+		if (intersections==null) return;
+		Set<Object> otherOwners = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Intersection is : intersections)
+		{
+			is.isRemoved = true;
+			freeSlot(is);
+			otherOwners.add(is.a.owner==owner ? is.b.owner : is.a.owner);
+		}
+		for (Object otherOwner : otherOwners)
+		{
+			ArrayList<Intersection> list = intersectionsByOwner.get(otherOwner);
+			if (list!=null) list.removeIf(is -> is.isRemoved);
+		}
+	}
+
+	private void addIntersection(Primitive a, Primitive b, double x, double y)
+	{
+		Intersection is = new Intersection(a, b, x, y);
+		intersectionsByOwner.get(a.owner).add(is);
+		intersectionsByOwner.get(b.owner).add(is);
+		is.slot = slots.size();
+		slots.add(is);
+		writeSlot(is.slot, is);
+	}
+
+	/** Moves the last intersection into the slot of <code>is</code>, so the slots stay without gaps. */
+	private void freeSlot(Intersection is)
+	{
+		int lastSlot = slots.size()-1;
+		Intersection last = slots.remove(lastSlot);
+		if (last!=is)
+		{
+			last.slot = is.slot;
+			slots.set(last.slot, last);
+			writeSlot(last.slot, last);
+		}
+		writeSlot(lastSlot, null); // don't keep removed forms alive
+		is.slot = -1;
+	}
+
+	private void writeSlot(int slot, Intersection is)
+	{
+		int c = slot>>CHUNK_SHIFT;
+		if (c>=chunks.length)
+			chunks = Arrays.copyOf(chunks, Math.max(16, chunks.length*2));
+		Chunk chunk = chunks[c];
+		if (chunk==null)
+			chunk = chunks[c] = new Chunk(generation);
+		else if (chunk.generation!=generation)
+			chunk = chunks[c] = new Chunk(chunk, generation); // copy on write, the old chunk is still used by published points
+
+		int i = slot & CHUNK_MASK;
+		chunk.xs[i] = is==null ? 0 : is.x;
+		chunk.ys[i] = is==null ? 0 : is.y;
+		chunk.ownersA[i] = is==null ? null : is.a.owner;
+		chunk.ownersB[i] = is==null ? null : is.b.owner;
+	}
+
+	private void intersectSegments(Primitive s1, Primitive s2)
+	{
+		double dx1 = s1.x2-s1.x1, dy1 = s1.y2-s1.y1;
+		double dx2 = s2.x2-s2.x1, dy2 = s2.y2-s2.y1;
+		double denom = dx1*dy2 - dy1*dx2;
+		if (denom==0) return; // parallel
+		double ex = s2.x1-s1.x1, ey = s2.y1-s1.y1;
+		double t = (ex*dy2 - ey*dx2) / denom;
+		double u = (ex*dy1 - ey*dx1) / denom;
+		if (t<0 || t>1 || u<0 || u>1) return;
+		addIntersection(s1, s2, s1.x1+t*dx1, s1.y1+t*dy1);
+	}
+
+	private void intersectSegmentWithArc(Primitive s, Primitive arc)
+	{
+		double dx = s.x2-s.x1, dy = s.y2-s.y1;
+		double fx = s.x1-arc.x1, fy = s.y1-arc.y1;
+		double a = dx*dx + dy*dy;
+		if (a==0) return;
+		double b = 2*(fx*dx + fy*dy);
+		double c = fx*fx + fy*fy - arc.r*arc.r;
+		double disc = b*b - 4*a*c;
+		if (disc<0) return;
+		double sqrtDisc = Math.sqrt(disc);
+		addSegmentArcIntersection(s, arc, (-b-sqrtDisc)/(2*a));
+		if (sqrtDisc>0)
+			addSegmentArcIntersection(s, arc, (-b+sqrtDisc)/(2*a));
+	}
+
+	private void addSegmentArcIntersection(Primitive s, Primitive arc, double t)
+	{
+		if (t<0 || t>1) return;
+		double x = s.x1+t*(s.x2-s.x1);
+		double y = s.y1+t*(s.y2-s.y1);
+		if (Math2.isInsideAngleRange(arc.aStart, arc.aEnd, Math2.angle(arc.x1, arc.y1, x, y)))
+			addIntersection(s, arc, x, y);
+	}
+
+	private void intersectArcs(Primitive arc1, Primitive arc2)
+	{
+		double d = Math2.dist(arc1.x1, arc1.y1, arc2.x1, arc2.y1);
+		if (d==0 || d>arc1.r+arc2.r || d<Math.abs(arc1.r-arc2.r)) return;
+		double aBase = Math2.angle(arc1.x1, arc1.y1, arc2.x1, arc2.y1);
+		double aOffset = Math.acos(Math.max(-1, Math.min(1, (arc1.r*arc1.r + d*d - arc2.r*arc2.r) / (2*arc1.r*d))));
+		addArcArcIntersection(arc1, arc2, aBase+aOffset);
+		if (aOffset>0)
+			addArcArcIntersection(arc1, arc2, aBase-aOffset);
+	}
+
+	private void addArcArcIntersection(Primitive arc1, Primitive arc2, double a)
+	{
+		double x = arc1.x1+arc1.r*Math.cos(a);
+		double y = arc1.y1+arc1.r*Math.sin(a);
+		if (Math2.isInsideAngleRange(arc1.aStart, arc1.aEnd, a) &&
+			Math2.isInsideAngleRange(arc2.aStart, arc2.aEnd, Math2.angle(arc2.x1, arc2.y1, x, y)))
+			addIntersection(arc1, arc2, x, y);
+	}
+
+	/** Publishes the current slots. Only the chunk references are copied, changed chunks were already copied by {@link #writeSlot(int, Intersection)}. */
+	private void publish()
+	{
+		int size = slots.size();
+		points = new Points(Arrays.copyOf(chunks, (size+CHUNK_MASK)>>CHUNK_SHIFT), size);
+		generation++;
+		gridStatistics = new GridStatistics(primitiveCount, oversized.size(), cellEntries, cellSize);
+	}
+
+	private interface CellAction
+	{
+		void accept(long cx, long cy);
+	}
+
+	private boolean isOversized(Primitive p)
+	{
+		double cellsX = Math.floor(p.maxX/cellSize) - Math.floor(p.minX/cellSize) + 1;
+		double cellsY = Math.floor(p.maxY/cellSize) - Math.floor(p.minY/cellSize) + 1;
+		return cellsX*cellsY > MAX_CELLS_PER_PRIMITIVE;
+	}
+
+	private void forEachCell(Primitive p, CellAction action)
+	{
+		long cx0 = (long) Math.floor(p.minX/cellSize);
+		long cy0 = (long) Math.floor(p.minY/cellSize);
+		long cx1 = (long) Math.floor(p.maxX/cellSize);
+		long cy1 = (long) Math.floor(p.maxY/cellSize);
+		for (long cx=cx0; cx<=cx1; cx++)
+			for (long cy=cy0; cy<=cy1; cy++)
+				action.accept(cx, cy);
+	}
+
+	private static Long cellKey(long cx, long cy)
+	{
+		return (cx<<32) ^ (cy & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,118 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.Arrays;
+
+/**
+ * Measures the latency from a mouse event entering the editor view to the end of the frame, that shows its result.
+ * <br><br>
+ * An event is traced in two stages: {@link Stage#Handling} ends, when the event was handled (e.g. a dragged point was modified),
+ * {@link Stage#Total} ends with the next painted frame.
+ * If several handled events are shown by the same frame, the oldest one is measured and the others are counted as coalesced.
+ * Hover events, that are replaced by a newer one before they were handled, are counted as dropped.
+ * <br><br>
+ * The last {@value #SAMPLE_COUNT} samples of each stage are kept for the percentiles.
+ * Tracing is disabled by default ({@link #setEnabled(boolean)}).
+ */
+public final class LatencyTracer
+{
+	private static final int SAMPLE_COUNT = 4096;
+
+	public enum Stage { Handling, Total }
+
+	public record Statistics(long count, long coalesced, long dropped, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {}
+
+	private final long[][] samples;
+	private final long[] totalCounts;
+	private long coalesced;
+	private long dropped;
+	private long pendingStart;
+	private volatile boolean enabled;
+
+	LatencyTracer()
+	{
+		samples = new long[Stage.values().length][SAMPLE_COUNT];
+		totalCounts = new long[samples.length];
+		coalesced = 0;
+		dropped = 0;
+		pendingStart = 0;
+		enabled = false;
+	}
+
+	public boolean isEnabled() { return enabled; }
+
+	public synchronized void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+		pendingStart = 0;
+	}
+
+	public synchronized Statistics getStatistics(Stage stage)
+	{
+		int s = stage.ordinal();
+		int n = (int) Math.min(totalCounts[s], SAMPLE_COUNT);
+		long[] sorted = Arrays.copyOf(samples[s], n);
+		Arrays.sort(sorted);
+		return new Statistics(
+			totalCounts[s], coalesced, dropped,
+			getPercentileMillis(sorted, 50), getPercentileMillis(sorted, 95), getPercentileMillis(sorted, 99),
+			n==0 ? 0 : sorted[n-1]/1e6
+		);
+	}
+
+	private static double getPercentileMillis(long[] sorted, double percentile)
+	{
+		if (sorted.length==0) return 0;
+		int index = (int) Math.ceil(sorted.length*percentile/100) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length-1, index))]/1e6;
+	}
+
+	public synchronized void reset()
+	{
+		Arrays.fill(totalCounts, 0);
+		coalesced = 0;
+		dropped = 0;
+		pendingStart = 0;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// recording (event dispatch thread)
+
+	/** @return the start time of the event or 0, if tracing is disabled */
+	long eventReceived()
+	{
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	synchronized void eventDropped()
+	{
+		if (enabled) dropped++;
+	}
+
+	/** The event, that was received at <code>start</code>, was handled and waits for the next frame. */
+	synchronized void eventHandled(long start)
+	{
+		if (start==0 || !enabled) return;
+		addSample(Stage.Handling, System.nanoTime()-start);
+		if (pendingStart!=0) coalesced++;
+		else pendingStart = start;
+	}
+
+	/** A frame was painted completely. */
+	void frameShown()
+	{
+		if (!enabled) return;
+		synchronized (this)
+		{
+			if (pendingStart==0) return;
+			addSample(Stage.Total, System.nanoTime()-pendingStart);
+			pendingStart = 0;
+		}
+	}
+
+	private void addSample(Stage stage, long nanos)
+	{
+		int s = stage.ordinal();
+		samples[s][(int) (totalCounts[s] % SAMPLE_COUNT)] = nanos;
+		totalCounts[s]++;
+	}
+}
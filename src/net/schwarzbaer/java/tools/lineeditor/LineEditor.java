@@ -12,14 +12,33 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
@@ -35,6 +54,7 @@ import javax.swing.JTabbedPane;
 import javax.swing.JToggleButton;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
@@ -50,12 +70,114 @@ public class LineEditor
 	public record GuideLinesChangedEvent(GuideLinesChangedEvent.Type type, String caller)
 	{
 		public enum Type { Added, Removed, Changed }
+		
+		GuideLinesChangedEvent merge(GuideLinesChangedEvent next)
+		{
+			return new GuideLinesChangedEvent(type==next.type ? type : Type.Changed, next.caller);
+		}
 	}
 	
-	public record FormsChangedEvent(FormsChangedEvent.Type type, String caller, Form[] newFormsList)
+	/**
+	 * Describes a change of the forms list.<br>
+	 * {@link #delta()} always holds the precise change.
+	 * The full list is only built, if {@link #newFormsList()} is called.
+	 */
+	public record FormsChangedEvent(FormsChangedEvent.Type type, String caller, FormsChangedEvent.Delta delta, Supplier<Form[]> formsList)
 	{
-		FormsChangedEvent(FormsChangedEvent.Type type, String caller) { this(type, caller, null); }
+		FormsChangedEvent(FormsChangedEvent.Type type, String caller, Delta delta) { this(type, caller, delta, null); }
 		public enum Type { Added, Removed, Changed }
+		
+		/**
+		 * Builds the current forms list of the editor. Call it on the event dispatch thread.
+		 * @return the current forms list or <code>null</code>, if the list itself wasn't changed (e.g. a form was only modified)
+		 */
+		public Form[] newFormsList() { return formsList==null ? null : formsList.get(); }
+		
+		public record IndexedForm(int index, Form form) {}
+		
+		/**
+		 * Merges this event with a following one.
+		 * @return the merged event or <code>null</code>, if the deltas can't be merged
+		 */
+		FormsChangedEvent merge(FormsChangedEvent next)
+		{
+			Delta mergedDelta = delta.append(next.delta);
+			if (mergedDelta==null) return null;
+			return new FormsChangedEvent(
+				type==next.type ? type : Type.Changed,
+				next.caller,
+				mergedDelta,
+				next.formsList!=null ? next.formsList : formsList
+			);
+		}
+		
+		/**
+		 * To apply a delta to a list, remove the forms at {@link #removedIndices()} first,
+		 * then set the forms of {@link #added()} and {@link #moved()} at their index
+		 * and update the forms in {@link #modified()} at last.
+		 * @param added          forms added to the list, with their index in the new list
+		 * @param removedIndices indices of removed forms in the old list (ascending)
+		 * @param moved          forms that got a new index in the list, with their index in the new list
+		 * @param modified       forms that were modified in place, with their index in the list
+		 */
+		public record Delta(IndexedForm[] added, int[] removedIndices, IndexedForm[] moved, IndexedForm[] modified)
+		{
+			private static final IndexedForm[] NO_FORMS = new IndexedForm[0];
+			private static final int[] NO_INDICES = new int[0];
+			
+			static Delta ofAdded   (IndexedForm... forms) { return new Delta(forms   , NO_INDICES, NO_FORMS, NO_FORMS); }
+			static Delta ofRemoved (int...   indices    ) { return new Delta(NO_FORMS, indices   , NO_FORMS, NO_FORMS); }
+			static Delta ofMoved   (IndexedForm... forms) { return new Delta(NO_FORMS, NO_INDICES, forms   , NO_FORMS); }
+			static Delta ofModified(IndexedForm... forms) { return new Delta(NO_FORMS, NO_INDICES, NO_FORMS, forms   ); }
+			
+			/** @return number of entries in this delta */
+			public int size() { return added.length + removedIndices.length + moved.length + modified.length; }
+			public boolean isEmpty() { return size()==0; }
+			
+			/**
+			 * Combines this delta with a following one.
+			 * A removal after other changes would shift the indices of the earlier changes, so it isn't merged.
+			 * @return the combined delta or <code>null</code>, if both can't be combined
+			 */
+			Delta append(Delta next)
+			{
+				if (next.removedIndices.length>0 && !isEmpty()) return null;
+				
+				LinkedHashMap<Integer,IndexedForm> added    = toMap(this.added   );
+				LinkedHashMap<Integer,IndexedForm> moved    = toMap(this.moved   );
+				LinkedHashMap<Integer,IndexedForm> modified = toMap(this.modified);
+				
+				for (IndexedForm f : next.added) {
+					added.put(f.index, f);
+					moved.remove(f.index);
+					modified.remove(f.index);
+				}
+				for (IndexedForm f : next.moved) {
+					if (added.containsKey(f.index)) added.put(f.index, f);
+					else                            moved.put(f.index, f);
+					modified.remove(f.index);
+				}
+				for (IndexedForm f : next.modified) {
+					if      (added.containsKey(f.index)) added   .put(f.index, f);
+					else if (moved.containsKey(f.index)) moved   .put(f.index, f);
+					else                                 modified.put(f.index, f);
+				}
+				
+				return new Delta(
+					added   .values().toArray(NO_FORMS),
+					next.removedIndices.length>0 ? next.removedIndices : removedIndices,
+					moved   .values().toArray(NO_FORMS),
+					modified.values().toArray(NO_FORMS)
+				);
+			}
+			
+			private static LinkedHashMap<Integer,IndexedForm> toMap(IndexedForm[] forms)
+			{
+				LinkedHashMap<Integer,IndexedForm> map = new LinkedHashMap<>();
+				for (IndexedForm f : forms) map.put(f.index, f);
+				return map;
+			}
+		}
 	}
 	
 	public interface Context
@@ -66,19 +188,31 @@ public class LineEditor
 		void formsChanged(FormsChangedEvent event);
 	}
 	
+	private static final AtomicInteger nextMBeanID = new AtomicInteger(0);
+	
 	private LineForm<?>[] lineforms = null;
+	private final IdentityHashMap<LineForm<?>, Integer> formIndices = new IdentityHashMap<>(); // form -> index in lineforms
 	
 	private final Context context;
 	private final EditorView editorView;
 	private final GeneralOptionPanel generalOptionPanel;
 	private final EditorViewContextMenu editorViewContextMenu;
 	private GuideLinesStorage guideLinesStorage;
+	private FormsImport activeImport;
+	private volatile CompletableFuture<DocumentSnapshot> snapshot = CompletableFuture.completedFuture(DocumentSnapshot.EMPTY);
+	private final AtomicReference<DocumentSnapshot> completedSnapshot = new AtomicReference<>(DocumentSnapshot.EMPTY);
+	private final CopyOnWriteArrayList<SnapshotListener> snapshotListeners = new CopyOnWriteArrayList<>();
+	private final ArrayList<BulkCopy> pendingCopies = new ArrayList<>(); // only accessed by event dispatch thread
+	private final EditorStats stats = new EditorStats(this::getSnapshot);
+	private final GeometryWorker geometryWorker = new GeometryWorker(this::getSnapshotAsync);
+	private ObjectName mbeanName = null;
 
 	public LineEditor(Rectangle2D.Double initialViewRect, Context context, EditorViewFeature... features) {
 		this.context = context;
 		guideLinesStorage = null;
+		activeImport = null;
 		
-		editorView = new EditorView(initialViewRect, features, new EditorViewContext());
+		editorView = new EditorView(initialViewRect, features, new EditorViewContext(), stats, geometryWorker);
 		editorView.setPreferredSize(500, 500);
 		editorViewContextMenu = new EditorViewContextMenu(editorView, features);
 		
@@ -86,31 +220,252 @@ public class LineEditor
 		generalOptionPanel.setPreferredSize(new Dimension(200, 200));
 	}
 	
+	private int indexOf(LineForm<?> form)
+	{
+		Integer index = form==null ? null : formIndices.get(form);
+		return index==null ? -1 : index;
+	}
+	
+	/**
+	 * Sets <code>lineforms</code> and updates <code>formIndices</code>.
+	 * @param unchangedLength number of forms at the start of the array, that have the same index in old and new array
+	 */
+	private void setLineForms(LineForm<?>[] newArr, int unchangedLength)
+	{
+		if (unchangedLength<=0)
+			formIndices.clear();
+		else if (lineforms!=null)
+			for (int i=unchangedLength; i<lineforms.length; i++)
+				formIndices.remove(lineforms[i]);
+		lineforms = newArr;
+		if (lineforms!=null)
+			for (int i=Math.max(0, unchangedLength); i<lineforms.length; i++)
+				formIndices.put(lineforms[i], i);
+	}
+	
+	/**
+	 * Returns the last completed version of the forms list as an immutable snapshot.
+	 * It can be called from any thread, doesn't copy anything and doesn't block.
+	 * The snapshot isn't changed by later edits.
+	 * While the forms of {@link #setForms(Form[])} or of an import are still copied in the background, it's an older version.
+	 * Use {@link #awaitSnapshot()} to get the current version.
+	 */
+	public DocumentSnapshot getSnapshot()
+	{
+		return completedSnapshot.get();
+	}
+	
+	/**
+	 * Waits until all forms are copied and returns the current version of the forms list.
+	 * This blocks as long as a background copy (see {@link #setForms(Form[])}) is running, so don't call it on the event dispatch thread.
+	 */
+	public DocumentSnapshot awaitSnapshot()
+	{
+		return snapshot.join();
+	}
+	
+	/** @return the current snapshot, that is completed when all forms are copied */
+	CompletableFuture<DocumentSnapshot> getSnapshotAsync()
+	{
+		return snapshot;
+	}
+	
+	/**
+	 * Gets every new snapshot of the forms list on the event dispatch thread.
+	 * This is the only place, where forms are copied for other threads.
+	 */
+	interface SnapshotListener
+	{
+		/**
+		 * @param delta    changes against the previous snapshot (only the indices may be used outside of the event dispatch thread)
+		 *                 or <code>null</code>, if the whole list was replaced
+		 * @param snapshot the new snapshot; it is completed when all forms are copied
+		 */
+		void snapshotChanged(FormsChangedEvent.Delta delta, CompletableFuture<DocumentSnapshot> snapshot);
+	}
+	
+	void    addSnapshotListener(SnapshotListener listener) { snapshotListeners.add   (listener); }
+	void removeSnapshotListener(SnapshotListener listener) { snapshotListeners.remove(listener); }
+	
+	private void setSnapshot(FormsChangedEvent.Delta delta, CompletableFuture<DocumentSnapshot> snapshot)
+	{
+		this.snapshot = snapshot;
+		snapshot.thenAccept(completed -> completedSnapshot.accumulateAndGet(completed, (s1,s2) -> s2.getVersion()>s1.getVersion() ? s2 : s1));
+		editorView.snapshotChanged();
+		for (SnapshotListener listener : snapshotListeners)
+			listener.snapshotChanged(delta, snapshot);
+	}
+	
+	/**
+	 * Call it before <code>forms</code> are modified in place.
+	 * Forms, that are still waiting for a background copy, are copied now (see {@link BulkCopy#detach(LineForm, int)}),
+	 * so the background copy never sees a half modified form. It doesn't wait for the rest of the copy.
+	 */
+	private void prepareInPlaceModification(Iterable<LineForm<?>> forms)
+	{
+		pendingCopies.removeIf(BulkCopy::isDone);
+		for (BulkCopy bulkCopy : pendingCopies)
+			for (LineForm<?> form : forms)
+				if (form!=null)
+					bulkCopy.detach(form, indexOf(form));
+	}
+	
+	/**
+	 * Copy of many forms (of {@link #setForms(Form[])} or of an import batch), that is made in the background.
+	 * Forms can be detached from it before they are modified in place. Then only these forms are copied on the calling thread.
+	 */
+	private static class BulkCopy
+	{
+		private final LineForm<?>[] source;
+		private final int offset;
+		private final Form[] copies; // each entry is set once, guarded by this
+		private volatile boolean isDone;
+		
+		/** @param offset index of <code>source[0]</code> in the forms list */
+		BulkCopy(LineForm<?>[] source, int offset)
+		{
+			this.source = source;
+			this.offset = offset;
+			copies = new Form[source.length];
+			isDone = false;
+		}
+		
+		boolean isDone()
+		{
+			return isDone;
+		}
+		
+		/** Copies all forms, that weren't detached. Is called on a background thread. */
+		Form[] run()
+		{
+			for (int i=0; i<source.length; i++)
+				synchronized (this) {
+					if (copies[i]==null) copies[i] = LineForm.convert(LineForm.clone(source[i]));
+				}
+			isDone = true;
+			return copies;
+		}
+		
+		/**
+		 * Copies <code>form</code> now, if it's part of this copy and wasn't copied yet.
+		 * Waits at most for the copy of this single form.
+		 * @param index current index of <code>form</code> in the forms list
+		 */
+		void detach(LineForm<?> form, int index)
+		{
+			if (isDone) return;
+			int i = index-offset;
+			if (i<0 || i>=source.length || source[i]!=form)
+			{
+				// the forms list was changed structurally in the meantime
+				i = -1;
+				for (int j=0; j<source.length && i<0; j++)
+					if (source[j]==form) i = j;
+				if (i<0) return;
+			}
+			synchronized (this) {
+				if (copies[i]==null) copies[i] = LineForm.convert(LineForm.clone(form));
+			}
+		}
+	}
+	
+	private BulkCopy startBulkCopy(LineForm<?>[] source, int offset)
+	{
+		pendingCopies.removeIf(BulkCopy::isDone);
+		BulkCopy bulkCopy = new BulkCopy(source, offset);
+		pendingCopies.add(bulkCopy);
+		return bulkCopy;
+	}
+	
+	private void fireFormsChanged(FormsChangedEvent event)
+	{
+		FormsChangedEvent.Delta delta = event.delta();
+		if (delta!=null && !delta.isEmpty())
+		{
+			// only the changed forms are copied; this happens now, before they can be modified again
+			int[] removedIndices = delta.removedIndices();
+			FormsChangedEvent.IndexedForm[] setForms = copy(delta.added(), delta.moved(), delta.modified());
+			setSnapshot(delta, snapshot.thenApply(base -> {
+				DocumentSnapshot.Builder builder = new DocumentSnapshot.Builder(base);
+				builder.remove(removedIndices);
+				for (FormsChangedEvent.IndexedForm f : setForms) builder.set(f.index(), f.form());
+				return builder.build();
+			}));
+		}
+		notifyFormsChanged(event);
+	}
+	
+	private void notifyFormsChanged(FormsChangedEvent event)
+	{
+		FormsChangedEvent.Delta delta = event.delta();
+		stats.formsChangedEvent(delta==null ? 0 : delta.size());
+		context.formsChanged(event);
+	}
+	
+	private static FormsChangedEvent.IndexedForm[] copy(FormsChangedEvent.IndexedForm[]... arrays)
+	{
+		int length = 0;
+		for (FormsChangedEvent.IndexedForm[] arr : arrays) length += arr.length;
+		FormsChangedEvent.IndexedForm[] copies = new FormsChangedEvent.IndexedForm[length];
+		int i = 0;
+		for (FormsChangedEvent.IndexedForm[] arr : arrays)
+			for (FormsChangedEvent.IndexedForm f : arr)
+				copies[i++] = new FormsChangedEvent.IndexedForm(f.index(), copy(f.form()));
+		return copies;
+	}
+	
+	private static Form copy(Form form)
+	{
+		return LineForm.convert(LineForm.clone(LineForm.convert(form)));
+	}
+	
+	private FormsChangedEvent.IndexedForm[] toIndexedForms(int[] indices)
+	{
+		FormsChangedEvent.IndexedForm[] arr = new FormsChangedEvent.IndexedForm[indices.length];
+		for (int i=0; i<indices.length; i++)
+			arr[i] = new FormsChangedEvent.IndexedForm(indices[i], LineForm.convert(lineforms[indices[i]]));
+		return arr;
+	}
+	
+	private Form[] getCurrentForms()
+	{
+		return LineForm.convert(lineforms);
+	}
+	
 	private class EditorViewContext implements EditorView.Context
 	{
 		boolean lastPanelWasFormPanel = false;
+		LineForm<?> editedForm = null;
 		
 		@Override public void updateHighlightedForms(HashSet<LineForm<?>> forms) {
-			if (lineforms==null)
-				generalOptionPanel.setSelectedForms(new int[0]);
-			else {
-				Vector<Integer> indices = new Vector<>();
-				for (int i=0; i<lineforms.length; i++) {
-					LineForm<?> form = lineforms[i];
-					if (forms.contains(form)) indices.add(i);
-				}
-				generalOptionPanel.setSelectedForms(indices.stream().mapToInt(v->v).toArray());
+			int[] indices = new int[forms.size()];
+			int count = 0;
+			for (LineForm<?> form : forms) {
+				Integer index = formIndices.get(form);
+				if (index!=null) indices[count++] = index;
 			}
+			Arrays.sort(indices, 0, count);
+			generalOptionPanel.setSelectedForms(count==indices.length ? indices : Arrays.copyOf(indices, count));
 		}
 		@Override public void setValuePanel(JPanel panel) {
-			if (panel == null)
+			LineForm<?> newEditedForm = panel==null ? null : editorView.getEditedForm();
+			// report the previous form also, if another form is selected directly, otherwise its changes would be missing in the snapshot
+			if (lastPanelWasFormPanel && (panel==null || newEditedForm!=editedForm))
 			{
-				context.switchOptionsPanel(generalOptionPanel);
-				if (lastPanelWasFormPanel)
-					context.formsChanged(new FormsChangedEvent(FormsChangedEvent.Type.Changed, "EditorView.Context.setValuePanel"));
+				int index = indexOf(editedForm);
+				FormsChangedEvent.Delta delta = index<0
+						? FormsChangedEvent.Delta.ofModified()
+						: FormsChangedEvent.Delta.ofModified(toIndexedForms(new int[] { index }));
+				fireFormsChanged(new FormsChangedEvent(FormsChangedEvent.Type.Changed, "EditorView.Context.setValuePanel", delta));
 			}
+			if (panel == null)
+				context.switchOptionsPanel(generalOptionPanel);
 			else
+			{
+				prepareInPlaceModification(Collections.singletonList(newEditedForm)); // the form will be modified in place
 				context.switchOptionsPanel(createReturnWrapperPanel(panel, ()->editorView.deselect()));
+			}
+			editedForm = newEditedForm;
 			lastPanelWasFormPanel = panel!=null;
 		}
 		@Override public void showsContextMenu(int x, int y) {
@@ -128,6 +483,7 @@ public class LineEditor
 		private void guideLinesChanged(GuideLinesChangedEvent.Type type, String caller)
 		{
 			editorView.updateAfterGuideLinesChange();
+			stats.guideLinesChangedEvent();
 			context.guideLinesChanged(new GuideLinesChangedEvent(type, caller));
 		}
 	}
@@ -141,50 +497,120 @@ public class LineEditor
 		}
 
 		@Override
-		public void formsChanged(boolean propagateList) {
-			context.formsChanged(
+		public void formsMoved(int index1, int index2) {
+			formIndices.put(lineforms[index1], index1);
+			formIndices.put(lineforms[index2], index2);
+			fireFormsChanged(
+				new FormsChangedEvent(
+					FormsChangedEvent.Type.Changed,
+					"GeneralOptionPanel.Context.formsMoved",
+					FormsChangedEvent.Delta.ofMoved(toIndexedForms(new int[] { index1, index2 })),
+					LineEditor.this::getCurrentForms
+				)
+			);
+		}
+
+		@Override
+		public void prepareFormsModification(List<LineForm<?>> forms) {
+			prepareInPlaceModification(forms);
+		}
+
+		@Override
+		public void formsModified(int[] indices) {
+			LineForm<?>[] modifiedForms = new LineForm<?>[indices.length];
+			for (int i=0; i<indices.length; i++)
+				modifiedForms[i] = lineforms[indices[i]];
+			editorView.formsModified(modifiedForms);
+			fireFormsChanged(
 				new FormsChangedEvent(
 					FormsChangedEvent.Type.Changed,
-					"GeneralOptionPanel.Context.formsChanged",
-					propagateList
-						? LineForm.convert(lineforms)
-						: null
+					"GeneralOptionPanel.Context.formsModified",
+					FormsChangedEvent.Delta.ofModified(toIndexedForms(indices))
 				)
 			);
 		}
 
+		@Override
+		public void simplifyPolyLines(int[] indices, double tolerance) {
+			LineForm<?>[] forms = new LineForm<?>[indices.length];
+			for (int i=0; i<indices.length; i++)
+				forms[i] = lineforms[indices[i]];
+			geometryWorker.submit("SimplifyPolyLines", snapshot -> {
+				double[][] newValues = new double[indices.length][];
+				for (int i=0; i<indices.length; i++) {
+					Form form = snapshot.get(indices[i]);
+					if (form instanceof LineForm.PolyLine)
+						newValues[i] = BatchProcessor.simplify(((LineForm.PolyLine) form).getValues(), tolerance);
+				}
+				return newValues;
+			}, newValues -> {
+				// snapshot is still current, so indices point to the same forms
+				Vector<LineForm<?>> modifiedForms = new Vector<>();
+				int[] modifiedIndices = new int[indices.length];
+				for (int i=0; i<indices.length; i++)
+					if (newValues[i]!=null && forms[i]!=editorView.getEditedForm()) {
+						modifiedIndices[modifiedForms.size()] = indices[i];
+						modifiedForms.add(forms[i]);
+					}
+				if (modifiedForms.isEmpty()) return;
+				prepareFormsModification(modifiedForms);
+				for (int i=0; i<indices.length; i++)
+					if (newValues[i]!=null && forms[i]!=editorView.getEditedForm())
+						((LineForm.PolyLine) forms[i]).setValues(newValues[i]);
+				formsModified(Arrays.copyOf(modifiedIndices, modifiedForms.size()));
+				editorView.repaint();
+				generalOptionPanel.repaint();
+			});
+		}
+
 		@Override
 		public void addForm(LineForm<?> form) {
 			if (form==null) return;
-			LineForm<?>[] newArr = lineforms==null ? new LineForm[1] : Arrays.copyOf(lineforms, lineforms.length+1);
-			newArr[newArr.length-1] = form;
-			setNewArray(newArr, FormsChangedEvent.Type.Added, "GeneralOptionPanel.Context.addForm");
+			Vector<LineForm<?>> forms = new Vector<>();
+			forms.add(form);
+			addForms(forms, "GeneralOptionPanel.Context.addForm");
 		}
 		@Override
 		public void addForms(Vector<LineForm<?>> forms) {
+			addForms(forms, "GeneralOptionPanel.Context.addForms");
+		}
+		private void addForms(Vector<LineForm<?>> forms, String caller) {
 			if (forms==null || forms.isEmpty()) return;
 			LineForm<?>[] newArr = lineforms==null ? new LineForm[forms.size()] : Arrays.copyOf(lineforms, lineforms.length+forms.size());
 			int offset = lineforms==null ? 0 : lineforms.length;
-			for (int i=0; i<forms.size(); i++)
-				newArr[offset+i] = forms.get(i);
-			setNewArray(newArr, FormsChangedEvent.Type.Added, "GeneralOptionPanel.Context.addForms");
+			FormsChangedEvent.IndexedForm[] added = new FormsChangedEvent.IndexedForm[forms.size()];
+			for (int i=0; i<forms.size(); i++) {
+				LineForm<?> form = forms.get(i);
+				newArr[offset+i] = form;
+				added[i] = new FormsChangedEvent.IndexedForm(offset+i, LineForm.convert(form));
+			}
+			setNewArray(newArr, offset, FormsChangedEvent.Type.Added, caller, FormsChangedEvent.Delta.ofAdded(added));
 		}
 		@Override
 		public void removeForms(List<LineForm<?>> forms) {
-			if (forms==null || forms.isEmpty()) return;
-			Vector<LineForm<?>> vec = new Vector<>(Arrays.asList(lineforms));
-			for (LineForm<?> rf:forms) vec.remove(rf);
+			if (forms==null || forms.isEmpty() || lineforms==null) return;
+			Set<LineForm<?>> formsToRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+			formsToRemove.addAll(forms);
+			Vector<LineForm<?>> vec = new Vector<>(lineforms.length);
+			int[] removedIndices = new int[lineforms.length];
+			int removedCount = 0;
+			for (int i=0; i<lineforms.length; i++)
+				if (formsToRemove.contains(lineforms[i]))
+					removedIndices[removedCount++] = i;
+				else
+					vec.add(lineforms[i]);
+			if (removedCount==0) return;
 			LineForm<?>[] newArr = vec.toArray(new LineForm<?>[vec.size()]);
-			setNewArray(newArr, FormsChangedEvent.Type.Removed, "GeneralOptionPanel.Context.removeForms");
+			setNewArray(newArr, removedIndices[0], FormsChangedEvent.Type.Removed, "GeneralOptionPanel.Context.removeForms", FormsChangedEvent.Delta.ofRemoved(Arrays.copyOf(removedIndices, removedCount)));
 		}
 
-		private void setNewArray(LineForm<?>[] newArr, FormsChangedEvent.Type eventType, String caller)
+		private void setNewArray(LineForm<?>[] newArr, int unchangedLength, FormsChangedEvent.Type eventType, String caller, FormsChangedEvent.Delta delta)
 		{
-			lineforms = newArr;
+			setLineForms(newArr, unchangedLength);
 			editorView        .setForms(lineforms);
 			generalOptionPanel.setForms(lineforms);
 			if (!context.canModifyFormsList()) throw new IllegalStateException();
-			context.formsChanged(new FormsChangedEvent(eventType, caller, LineForm.convert(lineforms)));
+			fireFormsChanged(new FormsChangedEvent(eventType, caller, delta, LineEditor.this::getCurrentForms));
 		}
 	}
 	
@@ -193,6 +619,96 @@ public class LineEditor
 		return editorView;
 	}
 
+	/**
+	 * Stops the background threads of the editor, a running import and a session recording and unregisters its MBean.
+	 * Call it on the event dispatch thread, when the editor isn't used anymore.
+	 */
+	public void dispose()
+	{
+		if (activeImport!=null) activeImport.cancel();
+		stopSessionRecording();
+		unregisterMBean();
+		geometryWorker.dispose();
+	}
+
+	/**
+	 * Returns the input latency tracer of the editor view. Tracing has to be enabled via {@link LatencyTracer#setEnabled(boolean)}.
+	 */
+	public LatencyTracer getLatencyTracer()
+	{
+		return editorView.getLatencyTracer();
+	}
+
+	/**
+	 * Starts recording the input of the editor view (mouse and key events, view changes and context menu actions) into <code>out</code>.
+	 * The size and the visible area of the editor view are recorded first.
+	 * A running recording is stopped. Call it on the event dispatch thread.
+	 */
+	public void startSessionRecording(OutputStream out) throws IOException
+	{
+		stopSessionRecording();
+		editorView.setSessionRecorder(new SessionRecorder(out, editorView.getWidth(), editorView.getHeight(), editorView.getViewRectangle()));
+	}
+
+	/**
+	 * Stops a running recording and closes its stream. Call it on the event dispatch thread.
+	 */
+	public void stopSessionRecording()
+	{
+		SessionRecorder recorder = editorView.getSessionRecorder();
+		if (recorder==null) return;
+		editorView.setSessionRecorder(null);
+		recorder.close();
+	}
+
+	/** Performs a context menu action of the editor view (used to replay recorded sessions). */
+	boolean performContextMenuAction(String text, Boolean selected)
+	{
+		return editorViewContextMenu.performAction(text, selected);
+	}
+
+	/**
+	 * Registers a {@link LineEditorMXBean} of this editor at the platform MBean server.
+	 * @return the name of the MBean or <code>null</code>, if registration failed
+	 */
+	public synchronized ObjectName registerMBean()
+	{
+		if (mbeanName!=null) return mbeanName;
+		try
+		{
+			ObjectName name = new ObjectName(String.format("%s:type=LineEditor,id=%d", LineEditor.class.getPackageName(), nextMBeanID.incrementAndGet()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(stats, name);
+			mbeanName = name;
+		}
+		catch (JMException e)
+		{
+			System.err.printf("Can't register MBean of LineEditor: %s%n", e);
+		}
+		return mbeanName;
+	}
+
+	public synchronized void unregisterMBean()
+	{
+		if (mbeanName==null) return;
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+		}
+		catch (JMException e)
+		{
+			System.err.printf("Can't unregister MBean \"%s\": %s%n", mbeanName, e);
+		}
+		mbeanName = null;
+	}
+
+	/**
+	 * Returns the frame timings of the editor view. Recording has to be enabled via {@link FrameTimings#setEnabled(boolean)}.
+	 */
+	public FrameTimings getFrameTimings()
+	{
+		return editorView.getFrameTimings();
+	}
+
 	public JComponent getInitialOptionsPanel()
 	{
 		return generalOptionPanel;
@@ -259,9 +775,140 @@ public class LineEditor
 
 	public void setForms(Form[] forms)
 	{
-		lineforms = LineForm.convert(forms);
+		if (activeImport!=null) activeImport.cancel();
+		setLineForms(LineForm.convert(forms), 0);
 		editorView        .setForms(lineforms);
 		generalOptionPanel.setForms(lineforms);
+		// the whole list is copied in the background; forms, that are modified before, are detached (see prepareInPlaceModification)
+		BulkCopy bulkCopy = startBulkCopy(lineforms==null ? new LineForm<?>[0] : lineforms.clone(), 0);
+		setSnapshot(null, snapshot.thenApplyAsync(base -> {
+			DocumentSnapshot.Builder builder = new DocumentSnapshot.Builder(base, false);
+			for (Form form : bulkCopy.run()) builder.append(form);
+			return builder.build();
+		}));
+	}
+	
+	/**
+	 * Starts a new (empty) forms list, that will be filled by the returned {@link FormsImport}.
+	 * Call it on the event dispatch thread. A running import is cancelled.
+	 */
+	public FormsImport startImport()
+	{
+		setForms(new Form[0]);
+		return activeImport = new FormsImport();
+	}
+	
+	private void appendForms(LineForm<?>[] forms)
+	{
+		int oldLength = lineforms==null ? 0 : lineforms.length;
+		LineForm<?>[] newArr = lineforms==null ? new LineForm<?>[forms.length] : Arrays.copyOf(lineforms, oldLength+forms.length);
+		System.arraycopy(forms, 0, newArr, oldLength, forms.length);
+		setLineForms(newArr, oldLength);
+		editorView        .appendForms(lineforms);
+		generalOptionPanel.appendForms(lineforms, oldLength);
+		
+		FormsChangedEvent.IndexedForm[] added = new FormsChangedEvent.IndexedForm[forms.length];
+		for (int i=0; i<forms.length; i++)
+			added[i] = new FormsChangedEvent.IndexedForm(oldLength+i, LineForm.convert(forms[i]));
+		FormsChangedEvent.Delta delta = FormsChangedEvent.Delta.ofAdded(added);
+		// the batch is copied in the background; forms, that are modified before, are detached (see prepareInPlaceModification)
+		BulkCopy bulkCopy = startBulkCopy(forms, oldLength);
+		setSnapshot(delta, snapshot.thenApplyAsync(base -> {
+			DocumentSnapshot.Builder builder = new DocumentSnapshot.Builder(base);
+			for (Form form : bulkCopy.run()) builder.append(form);
+			return builder.build();
+		}));
+		notifyFormsChanged(new FormsChangedEvent(FormsChangedEvent.Type.Added, "LineEditor.FormsImport", delta, this::getCurrentForms));
+	}
+	
+	/**
+	 * Adds forms to the editor while they are read.
+	 * Forms can be added from any thread (e.g. a reader thread, that creates them via {@link LineEditor#createFormFactory()}).
+	 * They are appended to the editor in batches on the event dispatch thread.
+	 */
+	public class FormsImport
+	{
+		private static final int MAX_BATCH_SIZE = 50000;
+		
+		private final ConcurrentLinkedQueue<Form> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+		private volatile boolean finished = false;
+		private volatile boolean cancelled = false;
+		private Runnable onFinished = null;
+		
+		private FormsImport() {}
+		
+		public void add(Form form)
+		{
+			if (form==null || finished || cancelled) return;
+			queue.add(form);
+			scheduleFlush();
+		}
+		
+		public void add(Form[] forms)
+		{
+			if (forms==null || finished || cancelled) return;
+			for (Form form : forms)
+				if (form!=null)
+					queue.add(form);
+			scheduleFlush();
+		}
+		
+		/**
+		 * Marks the end of the import. All forms added before are still appended to the editor.
+		 * @param onFinished will be called on the event dispatch thread, after the last form was appended (can be <code>null</code>)
+		 */
+		public void finish(Runnable onFinished)
+		{
+			SwingUtilities.invokeLater(()->{
+				this.onFinished = onFinished;
+				finished = true;
+				scheduleFlush();
+			});
+		}
+		
+		/** Stops the import. Forms, that were already appended, stay in the editor. Can be called from any thread. */
+		public void cancel()
+		{
+			cancelled = true;
+			queue.clear();
+			SwingUtilities.invokeLater(()->{
+				if (activeImport==this) activeImport = null;
+			});
+		}
+		
+		public boolean isActive()
+		{
+			return !finished && !cancelled;
+		}
+		
+		private void scheduleFlush()
+		{
+			if (flushScheduled.compareAndSet(false, true))
+				SwingUtilities.invokeLater(this::flush);
+		}
+		
+		private void flush()
+		{
+			flushScheduled.set(false);
+			if (cancelled) return;
+			
+			ArrayList<LineForm<?>> batch = new ArrayList<>();
+			for (Form form = queue.poll(); form!=null; form = batch.size()<MAX_BATCH_SIZE ? queue.poll() : null)
+				batch.add(LineForm.convert(form));
+			
+			if (!batch.isEmpty())
+				appendForms(batch.toArray(new LineForm<?>[batch.size()]));
+			
+			if (!queue.isEmpty())
+				scheduleFlush();
+			else if (finished)
+			{
+				if (activeImport==this) activeImport = null;
+				if (onFinished!=null) onFinished.run();
+				onFinished = null;
+			}
+		}
 	}
 	
 	public void setGuideLines(GuideLinesStorage guideLinesStorage)
@@ -323,26 +970,35 @@ public class LineEditor
 
 		public void writeToFile(PrintWriter out)
 		{
-			for (GuideLine gl:guideLines)
-				out.printf("GuideLine.%s=%s%n", gl.type.name(), Double.toString(gl.pos));
+			try { GuideLinesTextFormat.write(out, guideLines); }
+			catch (IOException e) { /* PrintWriter doesn't throw IOExceptions */ }
+		}
+
+		/**
+		 * Writes all guide lines (same format as {@link #writeToFile(PrintWriter)}).
+		 */
+		public void write(Writer out) throws IOException
+		{
+			GuideLinesTextFormat.write(out, guideLines);
 		}
 
 		public void parseLine(String line)
 		{
-			for (GuideLine.Type type:GuideLine.Type.values()) {
-				// out.printf("GuideLine.%s=%s%n", gl.type.toString(), Float.toString(gl.pos));
-				String prefix = String.format("GuideLine.%s=", type.name());
-				if (line.startsWith(prefix)) {
-					String str = line.substring(prefix.length());
-					try {
-						double pos = Double.parseDouble(str);
-						guideLines.add(new GuideLine(type, pos));
-					} catch (NumberFormatException e) {
-						System.err.printf("Can't convert \"%s\" in line \"%s\" into a numeric value.", str, line);
-					}
-					break;
-				}
-			}
+			GuideLine gl = GuideLinesTextFormat.parseLine(line, GuideLinesStorage::showNumberFormatError);
+			if (gl!=null) guideLines.add(gl);
+		}
+
+		/**
+		 * Reads all guide lines from <code>in</code> and adds them to this storage. Other lines are ignored.
+		 */
+		public void read(Reader in) throws IOException
+		{
+			GuideLinesTextFormat.read(in, guideLines::add, GuideLinesStorage::showNumberFormatError);
+		}
+
+		private static void showNumberFormatError(CharSequence str, CharSequence line)
+		{
+			System.err.printf("Can't convert \"%s\" in line \"%s\" into a numeric value.", str, line);
 		}
 
 		public void setDefaultGuideLines(double[] vertical, double[] horizontal)
@@ -359,7 +1015,12 @@ public class LineEditor
 		interface Context
 		{
 			boolean canModifyFormsList();
-			void formsChanged(boolean propagateList);
+			void formsMoved   (int index1, int index2);
+			/** Is called before <code>forms</code> are modified in place. */
+			void prepareFormsModification(List<LineForm<?>> forms);
+			void formsModified(int[] indices);
+			/** Simplifies the polylines at <code>indices</code> in background (see {@link BatchProcessor#simplify(double)}). */
+			void simplifyPolyLines(int[] indices, double tolerance);
 			void addForm    (       LineForm<?>  form );
 			void addForms   (Vector<LineForm<?>> forms);
 			void removeForms(List  <LineForm<?>> forms);
@@ -391,6 +1052,10 @@ public class LineEditor
 		void setForms(LineForm<?>[] forms) {
 			formsPanel.setForms(forms);
 		}
+		
+		void appendForms(LineForm<?>[] forms, int oldLength) {
+			formsPanel.appendForms(forms, oldLength);
+		}
 
 		private <V extends Number> V showNumberInputDialog(Component parentComp, String message, V initialValue, NumberParser<V> parser) {
 			String newStr = JOptionPane.showInputDialog(parentComp, message, initialValue);
@@ -446,6 +1111,7 @@ public class LineEditor
 			private final JButton btnRotateCW;
 			private final JButton btnRotateCCW;
 			private final JButton btnRotate;
+			private final JButton btnSimplify;
 			
 			FormsPanel() {
 				super(new BorderLayout(3,3));
@@ -486,14 +1152,16 @@ public class LineEditor
 				buttonPanel2.add( btnMoveUp = createButton(null      , GrayCommandIcons.IconGroup.Up    , false, true, e->{
 					int[] selectedIndices = formList.getSelectedIndices();
 					if (formListModel==null || selectedIndices.length!=1) return;
+					if (!formListModel.canMove(selectedIndices[0], -1)) return;
 					formListModel.move(selectedIndices[0], -1, formList::setSelectedIndex);
-					context.formsChanged(true);
+					context.formsMoved(selectedIndices[0], selectedIndices[0]-1);
 				}), c );
 				buttonPanel2.add( btnMoveDown = createButton(null, GrayCommandIcons.IconGroup.Down , false, true, e->{
 					int[] selectedIndices = formList.getSelectedIndices();
 					if (formListModel==null || selectedIndices.length!=1) return;
+					if (!formListModel.canMove(selectedIndices[0], +1)) return;
 					formListModel.move(selectedIndices[0], +1, formList::setSelectedIndex);
-					context.formsChanged(true);
+					context.formsMoved(selectedIndices[0], selectedIndices[0]+1);
 				}), c );
 				
 				JPanel buttonPanel3 = new JPanel(new GridBagLayout());
@@ -502,6 +1170,7 @@ public class LineEditor
 				buttonPanel3.add( btnRotateCW  = createButton("90°", GrayCommandIcons.IconGroup.Reload   , false, true, e->rotateForms90(formList.getSelectedValuesList(), true ) ), c );
 				buttonPanel3.add( btnRotateCCW = createButton("90°", GrayCommandIcons.IconGroup.ReloadCCW, false, true, e->rotateForms90(formList.getSelectedValuesList(), false) ), c );
 				buttonPanel3.add( btnRotate    = createButton("...", GrayCommandIcons.IconGroup.ReloadCCW, false, true, e->rotateForms  (formList.getSelectedValuesList()       ) ), c );
+				buttonPanel3.add( btnSimplify  = createButton("Simplify"  , false, true, e->simplifyForms() ), c );
 				
 				JPanel buttonGroupsPanel = new JPanel(new GridLayout(0,1));
 				buttonGroupsPanel.add(buttonPanel1);
@@ -553,13 +1222,24 @@ public class LineEditor
 				transformForms(forms, form -> form.mirror(dir,pos));
 			}
 
+			private void simplifyForms()
+			{
+				int[] selectedIndices = formList.getSelectedIndices();
+				Double tolerance = showDoubleInputDialog(this, "Simplification Tolerance: ", null);
+				if (tolerance==null) return;
+				
+				context.simplifyPolyLines(selectedIndices, tolerance);
+			}
+
 			private void transformForms(List<LineForm<?>> forms, Consumer<LineForm<?>> action)
 			{
+				int[] selectedIndices = formList.getSelectedIndices();
+				context.prepareFormsModification(forms);
 				for (LineForm<?> form:forms)
 					if (form!=null)
 						action.accept(form);
 				
-				context.formsChanged(false);
+				context.formsModified(selectedIndices);
 				editorView.repaint();
 				formList.repaint();
 			}
@@ -598,6 +1278,7 @@ public class LineEditor
 				btnRotateCW .setEnabled(selectedIndices.length>0);
 				btnRotateCCW.setEnabled(selectedIndices.length>0);
 				btnRotate   .setEnabled(selectedIndices.length>0);
+				btnSimplify .setEnabled(selectedIndices.length>0);
 			}
 
 			private LineForm<?> createNewForm(FormType formType) {
@@ -616,15 +1297,24 @@ public class LineEditor
 				formList.setModel(formListModel = new FormListModel(forms));
 				updateButtons();
 			}
+			
+			void appendForms(LineForm<?>[] forms, int oldLength) {
+				if (formListModel==null) { setForms(forms); return; }
+				formListModel.forms = forms;
+				if (forms.length>oldLength)
+					formListModel.fireIntervalAdded(formListModel, oldLength, forms.length-1);
+				updateButtons();
+			}
 	
 			private final class FormListModel extends AbstractListModel<LineForm<?>> {
-				private final LineForm<?>[] forms;
+				private LineForm<?>[] forms;
 				
 				public FormListModel(LineForm<?>[] forms) {
-					super(null, null, (index1, index2) -> {
-						LineForm<?> temp = forms[index1];
-						forms[index1] = forms[index2];
-						forms[index2] = temp;
+					super(null, null, null);
+					setSwap((index1, index2) -> {
+						LineForm<?> temp = this.forms[index1];
+						this.forms[index1] = this.forms[index2];
+						this.forms[index2] = temp;
 					});
 					this.forms = forms;
 				}
@@ -798,7 +1488,7 @@ public class LineEditor
 	
 	private static abstract class AbstractListModel<ItemType> implements ListModel<ItemType> {
 		private final Vector<ListDataListener> listDataListeners;
-		private final BiConsumer<Integer, Integer> swap;
+		private BiConsumer<Integer, Integer> swap;
 	
 		AbstractListModel(Consumer<Integer> remove, BiConsumer<ItemType, Integer> insert, BiConsumer<Integer, Integer> swap) {
 			this.swap = swap!=null ? swap : remove==null || insert==null ? null : (index1, index2) -> {
@@ -810,6 +1500,10 @@ public class LineEditor
 		}
 		
 		protected abstract boolean hasData();
+		
+		protected void setSwap(BiConsumer<Integer, Integer> swap) {
+			this.swap = swap;
+		}
 	
 		void move(int index, int inc, Consumer<Integer> updateSelection)
 		{
@@ -853,6 +1547,7 @@ public class LineEditor
 		private static final long serialVersionUID = 1271594755142232548L;
 		private final JCheckBoxMenuItem miStickToGuideLines;
 		private final JCheckBoxMenuItem miStickToFormPoints;
+		private final JCheckBoxMenuItem miStickToIntersections;
 		private final EditorView editorView;
 		private final EditorViewFeature[] features;
 	
@@ -861,13 +1556,41 @@ public class LineEditor
 			this.features = features;
 			add(miStickToGuideLines = createCheckBoxMI("Stick to GuideLines" , editorView.isStickToGuideLines(), editorView::setStickToGuideLines));
 			add(miStickToFormPoints = createCheckBoxMI("Stick to Form Points", editorView.isStickToFormPoints(), editorView::setStickToFormPoints));
+			add(miStickToIntersections = createCheckBoxMI("Stick to Intersections", editorView.isStickToIntersections(), editorView::setStickToIntersections));
 			for (EditorViewFeature feature : this.features)
 				feature.addToEditorViewContextMenu(this);
+			
+			for (Component comp : getComponents())
+				if (comp instanceof JMenuItem) {
+					JMenuItem item = (JMenuItem) comp;
+					item.addActionListener(e -> {
+						SessionRecorder recorder = editorView.getSessionRecorder();
+						if (recorder!=null) recorder.menuAction(item.getText(), item instanceof JCheckBoxMenuItem ? item.isSelected() : null);
+					});
+				}
+		}
+		
+		/**
+		 * Performs the action of the item with the given text like a click of the user.
+		 * @param selected state of a check box item after the action or <code>null</code>
+		 * @return <code>false</code>, if there is no such item
+		 */
+		boolean performAction(String text, Boolean selected) {
+			prepareToShow();
+			for (Component comp : getComponents())
+				if (comp instanceof JMenuItem && text.equals(((JMenuItem) comp).getText())) {
+					JMenuItem item = (JMenuItem) comp;
+					if (selected==null || item.isSelected()!=selected.booleanValue())
+						item.doClick(0);
+					return true;
+				}
+			return false;
 		}
 	
 		public void prepareToShow() {
 			miStickToGuideLines.setSelected(editorView.isStickToGuideLines());
 			miStickToFormPoints.setSelected(editorView.isStickToFormPoints());
+			miStickToIntersections.setSelected(editorView.isStickToIntersections());
 			for (EditorViewFeature feature : this.features)
 				feature.prepareContextMenuToShow();
 		}
@@ -0,0 +1,29 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+/**
+ * Management interface of a {@link LineEditor}, see {@link LineEditor#registerMBean()}.
+ * Counters are totals since the editor was created.
+ */
+public interface LineEditorMXBean
+{
+	int  getFormCount();
+	long getVertexCount();
+
+	long   getPaintCount();
+	double getAveragePaintMillis();
+	double getLastPaintMillis();
+
+	long   getHitTestCount();
+	/** @return hit-tests per second since the previous call of this method */
+	double getHitTestsPerSecond();
+
+	long getSnapQueryCount();
+	long getIndexRebuildCount();
+
+	long getFormsChangedEventCount();
+	long getGuideLinesChangedEventCount();
+	/** @return number of entries in the delta of the last FormsChangedEvent */
+	int  getLastFormsChangedEventSize();
+
+	void resetCounters();
+}
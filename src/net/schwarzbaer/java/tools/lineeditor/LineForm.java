@@ -162,13 +162,16 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 			void highlightedPointChanged(Integer point);
 		}
 		
+		private static final int MIN_POINTS_FOR_VERTEX_GRID = 256;
+		
 		private NextNewPoint nextNewPoint = null;
 		private Integer highlightedPoint = null;
 		private HighlightListener listener = null;
+		private VertexGrid vertexGrid = null;
 		
 		@Override public void setHighlightedPoint(Integer point) { highlightedPoint = point; if (listener!=null) listener.highlightedPointChanged(highlightedPoint); }
 		public void setHighlightListener(HighlightListener listener) { this.listener = listener; }
-		@Override public LineForm.PolyLine setValues(double[] values) { super.setValues(values); return this; }
+		@Override public LineForm.PolyLine setValues(double[] values) { super.setValues(values); vertexGrid = null; return this; }
 
 		@Override public String toString() { return String.format(Locale.ENGLISH, "PolyLine [ %d points ]", points.size()); }
 		public static String toString(Point p) { return String.format(Locale.ENGLISH, "Point ( %1.4f, %1.4f )", p.x, p.y); }
@@ -182,15 +185,18 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 		public void modifyPoints(ModifyAction action)
 		{
 			points.forEach(p->action.modify(p.x, p.y, p::set));
+			vertexGrid = null;
 		}
 		
 		@Override
 		public void translate(double x, double y) {
 			for (Point p:points) { p.x+=x; p.y+=y; }
+			vertexGrid = null;
 		}
 		
 		@Override
 		public void mirror(MirrorDirection dir, double pos) {
+			vertexGrid = null;
 			for (Point p:points) {
 				switch (dir) {
 				case Horizontal_LeftRight: p.x = pos - (p.x-pos); break;
@@ -204,6 +210,40 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 		{
 			for (Point p:points)
 				p.set(rotate90(p.x, p.y, centerX, centerY, mathPosDir));
+			vertexGrid = null;
+		}
+		
+		/**
+		 * @return index of the point nearest to (<code>x</code>,<code>y</code>) with a distance less than <code>maxDist</code>, or <code>null</code>
+		 */
+		Integer findNearestPoint(double x, double y, double maxDist) {
+			if (points.size()>=MIN_POINTS_FOR_VERTEX_GRID) {
+				if (vertexGrid==null || vertexGrid.size()!=points.size())
+					vertexGrid = new VertexGrid(points);
+				return vertexGrid.findNearest(x, y, maxDist);
+			}
+			
+			Integer index = null;
+			double minDist = 0;
+			for (int i=0; i<points.size(); i++) {
+				Point p = points.get(i);
+				double d = Math2.dist(p.x, p.y, x, y);
+				if (d<maxDist && (index==null || d<minDist)) {
+					minDist = d;
+					index = i;
+				}
+			}
+			return index;
+		}
+		
+		/** Has to be called after point <code>index</code> was moved. */
+		void pointChanged(int index) {
+			if (vertexGrid!=null) vertexGrid.pointChanged(index);
+		}
+		
+		void removePoint(int index) {
+			points.remove(index);
+			vertexGrid = null;
 		}
 		
 		@Override
@@ -322,6 +362,7 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 				}
 			}
 			nextNewPoint = null;
+			vertexGrid = null;
 			return index;
 		}
 		
@@ -451,17 +492,60 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 			}
 		}
 		
+		/**
+		 * Values derived from the arc parameters. It's immutable, so it can be shared with other threads.
+		 * It's replaced, when one of the parameters doesn't match anymore, so every way of changing the public fields is covered.
+		 */
+		private static final class Geometry {
+			final double xC, yC, r, aStart, aEnd;
+			final double xS, yS, xE, yE;
+			final Rectangle2D.Double boundingBox;
+			
+			Geometry(LineForm.Arc arc) {
+				xC = arc.xC; yC = arc.yC; r = arc.r; aStart = arc.aStart; aEnd = arc.aEnd;
+				xS = xC+r*Math.cos(aStart);
+				yS = yC+r*Math.sin(aStart);
+				xE = xC+r*Math.cos(aEnd  );
+				yE = yC+r*Math.sin(aEnd  );
+				boundingBox = arc.computeBoundingBox_uncached();
+			}
+			
+			boolean matches(LineForm.Arc arc) {
+				return xC==arc.xC && yC==arc.yC && r==arc.r && aStart==arc.aStart && aEnd==arc.aEnd;
+			}
+		}
+		private Geometry geometry = null;
+		
+		private Geometry getGeometry() {
+			Geometry g = geometry;
+			if (g==null || !g.matches(this))
+				geometry = g = new Geometry(this);
+			return g;
+		}
+		
+		double getStartX() { return getGeometry().xS; }
+		double getStartY() { return getGeometry().yS; }
+		double getEndX  () { return getGeometry().xE; }
+		double getEndY  () { return getGeometry().yE; }
+		
+		private Rectangle2D.Double computeBoundingBox_uncached() {
+			return super.computeBoundingBox();
+		}
+		
+		@Override
+		public Rectangle2D.Double computeBoundingBox() {
+			Rectangle2D.Double bb = getGeometry().boundingBox;
+			return bb==null ? null : new Rectangle2D.Double(bb.x, bb.y, bb.width, bb.height); // callers may modify the result
+		}
+		
 		@Override public LineForm.Arc setValues(double[] values) { super.setValues(values); return this; }
 		@Override public String toString() { return String.format(Locale.ENGLISH, "Arc [ C:(%1.2f,%1.2f), R:%1.2f, Angle(%1.1f..%1.1f) ]", xC, yC, r, aStart*180/Math.PI, aEnd*180/Math.PI); }
 		
 		@Override
 		public void forEachPoint(BiConsumer<Double, Double> action) {
-			double xS = (xC+r*Math.cos(aStart));
-			double yS = (yC+r*Math.sin(aStart));
-			double xE = (xC+r*Math.cos(aEnd  ));
-			double yE = (yC+r*Math.sin(aEnd  ));
-			action.accept(xS,yS);
-			action.accept(xE,yE);
+			Geometry g = getGeometry();
+			action.accept(g.xS,g.yS);
+			action.accept(g.xE,g.yE);
 			action.accept(xC,yC);
 		}
 		
@@ -593,12 +677,13 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 		}
 		@Override
 		public void drawPoints(Graphics2D g2, ViewState viewState) {
+			Geometry g = getGeometry();
 			int xCs = viewState.convertPos_AngleToScreen_LongX(xC);
 			int yCs = viewState.convertPos_AngleToScreen_LatY (yC);
-			int xSs = viewState.convertPos_AngleToScreen_LongX(xC+r*Math.cos(aStart));
-			int ySs = viewState.convertPos_AngleToScreen_LatY (yC+r*Math.sin(aStart));
-			int xEs = viewState.convertPos_AngleToScreen_LongX(xC+r*Math.cos(aEnd  ));
-			int yEs = viewState.convertPos_AngleToScreen_LatY (yC+r*Math.sin(aEnd  ));
+			int xSs = viewState.convertPos_AngleToScreen_LongX(g.xS);
+			int ySs = viewState.convertPos_AngleToScreen_LatY (g.yS);
+			int xEs = viewState.convertPos_AngleToScreen_LongX(g.xE);
+			int yEs = viewState.convertPos_AngleToScreen_LatY (g.yE);
 			EditorView.drawPoint(g2,xSs,ySs,isType(highlightedPoint,ArcPoint.Type.Start ));
 			EditorView.drawPoint(g2,xEs,yEs,isType(highlightedPoint,ArcPoint.Type.End   ));
 			EditorView.drawPoint(g2,xCs,yCs,isType(highlightedPoint,ArcPoint.Type.Center));
@@ -622,12 +707,9 @@ interface LineForm<HighlightPointType> extends Form, LineFormEditing.EditableFor
 			if (Math2.isInsideAngleRange(aStart, aEnd, w)) {
 				return Math.abs(dC-r);
 			}
-			double xS = r*Math.cos(aStart);
-			double yS = r*Math.sin(aStart);
-			double xE = r*Math.cos(aEnd);
-			double yE = r*Math.sin(aEnd);
-			double dS = Math2.dist(xS,yS,x,y);
-			double dE = Math2.dist(xE,yE,x,y);
+			Geometry g = getGeometry();
+			double dS = Math2.dist(g.xS,g.yS,x,y);
+			double dE = Math2.dist(g.xE,g.yE,x,y);
 			if (dS<dE) {
 				if (dS<=maxDist) return dS;
 			} else {
@@ -15,7 +15,6 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 import java.util.Arrays;
 import java.util.Locale;
-import java.util.Vector;
 import java.util.function.Consumer;
 import java.util.function.DoubleFunction;
 import java.util.function.Function;
@@ -31,6 +30,8 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellEditor;
 
@@ -98,6 +99,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 		selectedPoint = getNext(x,y);
 		form.setHighlightedPoint(selectedPoint);
 		if (selectedPoint!=null) {
+			editorView.startSnappingSession(form);
 			prepareDragging(selectedPoint);
 			int xs = viewState.convertPos_AngleToScreen_LongX((float) getSelectedPointX(selectedPoint));
 			int ys = viewState.convertPos_AngleToScreen_LatY ((float) getSelectedPointY(selectedPoint));
@@ -117,6 +119,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 		if (selectedPoint!=null) {
 			form.setHighlightedPoint(selectedPoint);
 			modifySelectedPoint(selectedPoint,x,y,pickOffset);
+			editorView.pointModified();
 			editorView.repaint();
 			return true;
 		}
@@ -125,6 +128,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 	}
 
 	boolean onReleased(MouseEvent e) {
+		editorView.endSnappingSession();
 		selectedPoint = null;
 		form.setHighlightedPoint(null);
 		pickOffset = null;
@@ -176,6 +180,9 @@ abstract class LineFormEditing<HighlightedPointType> {
 		private final Color defaultBG;
 		private final Function<String, V> parse;
 		private final Predicate<V> isOK;
+		private final FrameThrottle liveUpdate;
+		private String lastLiveText;
+		private boolean isSettingValue;
 
 		GenericTextField(V value, Function<V,String> toString, Function<String,V> parse, Predicate<V> isOK, Consumer<V> setValue) {
 			this(value, toString, parse, isOK, setValue, null);
@@ -186,15 +193,20 @@ abstract class LineFormEditing<HighlightedPointType> {
 			this.parse = parse;
 			this.isOK = isOK;
 			defaultBG = getBackground();
+			isSettingValue = false;
+			lastLiveText = getText();
 			if (setValueWhileAdjusting!=null) {
-				addCaretListener (e -> {
-					readTextField(v -> {
-						setValueWhileAdjusting.accept(v);
-						editorView.repaint();
-					});
+				liveUpdate = new FrameThrottle();
+				getDocument().addDocumentListener(new DocumentListener() {
+					@Override public void insertUpdate (DocumentEvent e) { scheduleLiveUpdate(setValueWhileAdjusting); }
+					@Override public void removeUpdate (DocumentEvent e) { scheduleLiveUpdate(setValueWhileAdjusting); }
+					@Override public void changedUpdate(DocumentEvent e) {}
 				});
-			}
+			} else
+				liveUpdate = null;
 			Consumer<V> modifiedSetValue = d -> {
+				if (liveUpdate!=null) liveUpdate.cancel();
+				lastLiveText = getText();
 				setValue.accept(d);
 				editorView.repaint();
 			};
@@ -205,7 +217,24 @@ abstract class LineFormEditing<HighlightedPointType> {
 			});
 		}
 		
-		void setValue(V value) { setText(toString.apply(value)); }
+		void setValue(V value) {
+			isSettingValue = true;
+			setText(lastLiveText = toString.apply(value));
+			isSettingValue = false;
+		}
+		
+		private void scheduleLiveUpdate(Consumer<V> setValueWhileAdjusting) {
+			if (isSettingValue) return;
+			liveUpdate.schedule(() -> {
+				String text = getText();
+				if (text.equals(lastLiveText)) return;
+				lastLiveText = text;
+				readTextField(v -> {
+					setValueWhileAdjusting.accept(v);
+					editorView.repaint();
+				});
+			});
+		}
 		
 		private void readTextField(Consumer<V> setValue) {
 			V d = parse.apply(getText());
@@ -332,8 +361,9 @@ abstract class LineFormEditing<HighlightedPointType> {
 		private boolean isAStartFixed = false;
 		private boolean   isAEndFixed = false;
 		
-		private double[] glAngles = null;
-		private double maxGlAngle = Double.NaN;
+		private double[] snapAngles = new double[16];
+		private int snapAngleCount = 0;
+		private double maxSnapAngle = Double.NaN;
 		private final Arc arc;
 		
 		private ArcEditing(Arc arc, ViewState viewState, EditorView editorView, MouseEvent e) {
@@ -380,10 +410,10 @@ abstract class LineFormEditing<HighlightedPointType> {
 			
 			double xC = arc.xC;
 			double yC = arc.yC;
-			double xS = xC+arc.r*Math.cos(arc.aStart);
-			double yS = yC+arc.r*Math.sin(arc.aStart);
-			double xE = xC+arc.r*Math.cos(arc.aEnd  );
-			double yE = yC+arc.r*Math.sin(arc.aEnd  );
+			double xS = arc.getStartX();
+			double yS = arc.getStartY();
+			double xE = arc.getEndX();
+			double yE = arc.getEndY();
 			
 			double dC = Math2.dist(xC, yC, xM, yM);
 			double dS = Math2.dist(xS, yS, xM, yM);
@@ -407,42 +437,79 @@ abstract class LineFormEditing<HighlightedPointType> {
 		@Override protected float getSelectedPointY(ArcPoint selectedPoint) { return (float) selectedPoint.y; }
 		@Override protected void  prepareDragging  (ArcPoint selectedPoint) {
 			if (selectedPoint.type==Type.Start || selectedPoint.type==Type.End) {
-				glAngles = computeIntersectionPointsWithGuideLines(arc.xC,arc.yC,arc.r);
-				maxGlAngle = viewState.convertLength_ScreenToLength(EditorView.MAX_GUIDELINE_DISTANCE)/arc.r;
-				//System.out.printf(Locale.ENGLISH, "maxGlAngle: %1.4f (%1.2f°)%n", maxGlAngle, maxGlAngle*180/Math.PI);
-				//System.out.printf(Locale.ENGLISH, "glAngles:%n");
-				//System.out.printf(Locale.ENGLISH, "   %s%n", toString(glAngles, d->String.format(Locale.ENGLISH, "%1.4f", d            )));
-				//System.out.printf(Locale.ENGLISH, "   %s%n", toString(glAngles, d->String.format(Locale.ENGLISH, "%1.2f°", d*180/Math.PI)));
+				double maxDist = viewState.convertLength_ScreenToLength(EditorView.MAX_GUIDELINE_DISTANCE);
+				computeSnapAngles(arc.xC,arc.yC,arc.r, maxDist);
+				maxSnapAngle = maxDist/arc.r;
+				//System.out.printf(Locale.ENGLISH, "maxSnapAngle: %1.4f (%1.2f°)%n", maxSnapAngle, maxSnapAngle*180/Math.PI);
+				//System.out.printf(Locale.ENGLISH, "snapAngles:%n");
+				//System.out.printf(Locale.ENGLISH, "   %s%n", toString(Arrays.copyOf(snapAngles, snapAngleCount), d->String.format(Locale.ENGLISH, "%1.4f", d            )));
+				//System.out.printf(Locale.ENGLISH, "   %s%n", toString(Arrays.copyOf(snapAngles, snapAngleCount), d->String.format(Locale.ENGLISH, "%1.2f°", d*180/Math.PI)));
 			}
 		}
 
-		private double[] computeIntersectionPointsWithGuideLines(double xC, double yC, double r) {
-			Vector<Double> anglesVec = new Vector<>();
-			editorView.forEachGuideLines((type,pos)->{
-				switch (type) {
-				case Horizontal:
-					if (yC-r<pos && pos<yC+r) {
-						double a = Math.asin((pos-yC)/r);
-						anglesVec.add(a);
-						anglesVec.add(Math.PI-a);
+		/**
+		 * Collects the angles (0..2pi, sorted) of all points on the circle, where the arc end points can snap to:
+		 * intersections with guide lines and with other arcs and points of other forms near the circle.
+		 */
+		private void computeSnapAngles(double xC, double yC, double r, double maxDist) {
+			snapAngleCount = 0;
+			if (editorView.isStickToGuideLines())
+				editorView.forEachGuideLines((type,pos)->{
+					switch (type) {
+					case Horizontal:
+						if (yC-r<pos && pos<yC+r) {
+							double a = Math.asin((pos-yC)/r);
+							addSnapAngle(a);
+							addSnapAngle(Math.PI-a);
+						}
+						break;
+					case Vertical:
+						if (xC-r<pos && pos<xC+r) {
+							double a = Math.acos((pos-xC)/r);
+							addSnapAngle( a);
+							addSnapAngle(-a);
+						}
+						break;
 					}
-					break;
-				case Vertical:
-					if (xC-r<pos && pos<xC+r) {
-						double a = Math.acos((pos-xC)/r);
-						anglesVec.add( a);
-						anglesVec.add(-a);
-					}
-					break;
-				}
-			});
-			double[] anglesArr = anglesVec.stream().mapToDouble(d->d).toArray();
-			for (int i=0; i<anglesArr.length; i++) {
-				while (anglesArr[i] <  0        ) anglesArr[i] += Math.PI*2;
-				while (anglesArr[i] >= Math.PI*2) anglesArr[i] -= Math.PI*2;
+				});
+			if (editorView.isStickToFormPoints())
+				editorView.forEachForm(form->{
+					if (form==arc) return;
+					form.forEachPoint((x,y)->{
+						if (Math.abs(Math2.dist(xC,yC,x,y)-r) < maxDist)
+							addSnapAngle(Math2.angle(xC,yC,x,y));
+					});
+					if (form instanceof Arc)
+						addIntersectionsWithArc(xC,yC,r,(Arc) form);
+				});
+			for (int i=0; i<snapAngleCount; i++) {
+				while (snapAngles[i] <  0        ) snapAngles[i] += Math.PI*2;
+				while (snapAngles[i] >= Math.PI*2) snapAngles[i] -= Math.PI*2;
 			}
-			Arrays.sort(anglesArr);
-			return anglesArr;
+			Arrays.sort(snapAngles, 0, snapAngleCount);
+		}
+
+		private void addIntersectionsWithArc(double xC, double yC, double r, Arc other) {
+			double d = Math2.dist(xC, yC, other.xC, other.yC);
+			if (d==0 || d>r+other.r || d<Math.abs(r-other.r)) return;
+			double aBase = Math2.angle(xC, yC, other.xC, other.yC);
+			double aOffset = Math.acos(Math.max(-1, Math.min(1, (r*r + d*d - other.r*other.r) / (2*r*d))));
+			addIntersectionWithArc(xC, yC, r, other, aBase+aOffset);
+			if (aOffset>0)
+				addIntersectionWithArc(xC, yC, r, other, aBase-aOffset);
+		}
+
+		private void addIntersectionWithArc(double xC, double yC, double r, Arc other, double a) {
+			double x = xC+r*Math.cos(a);
+			double y = yC+r*Math.sin(a);
+			if (Math2.isInsideAngleRange(other.aStart, other.aEnd, Math2.angle(other.xC, other.yC, x, y)))
+				addSnapAngle(a);
+		}
+
+		private void addSnapAngle(double a) {
+			if (snapAngleCount>=snapAngles.length)
+				snapAngles = Arrays.copyOf(snapAngles, snapAngles.length*2);
+			snapAngles[snapAngleCount++] = a;
 		}
 		
 		@Override protected void modifySelectedPoint(ArcPoint selectedPoint, int x, int y, Point pickOffset) {
@@ -486,22 +553,30 @@ abstract class LineFormEditing<HighlightedPointType> {
 			double xM = viewState.convertPos_ScreenToAngle_LongX(x);
 			double yM = viewState.convertPos_ScreenToAngle_LatY (y);
 			double aM = Math2.angle(arc.xC, arc.yC, xM, yM);
-			double aMinDist = Math.PI*2;
-			Double aMin = null;
-			double[] aDistArr = new double[glAngles.length];
-			for (int i=0; i<glAngles.length; i++) {
-				double a = glAngles[i];
-				double aDist = Math.abs(Math2.computeAngleDist(a,aM));
-				aDistArr[i] = aDist;
-				if (aDist<maxGlAngle && (aMin==null || aDist<aMinDist)) {
-					aMinDist = aDist;
-					aMin = a;
-				}
+			if (snapAngleCount==0) return aM;
+			if (aM<0) aM += Math.PI*2;
+			
+			// nearest angles are the neighbours of aM in sorted snapAngles (with wrap-around at 2pi)
+			int lo = 0, hi = snapAngleCount;
+			while (lo<hi) {
+				int mid = (lo+hi)>>>1;
+				if (snapAngles[mid]<aM) lo = mid+1;
+				else hi = mid;
 			}
-			//System.out.printf(Locale.ENGLISH, "AngleDistances: %s%n", toString(aDistArr, d->String.format(Locale.ENGLISH, "%1.2f°", d*180/Math.PI)));
-			if (aMin!=null) return aMin;
+			double aAbove = snapAngles[lo<snapAngleCount ? lo : 0];
+			double aBelow = snapAngles[lo>0 ? lo-1 : snapAngleCount-1];
+			double distAbove = getAngleDist(aAbove, aM);
+			double distBelow = getAngleDist(aBelow, aM);
+			
+			if (distAbove<=distBelow && distAbove<maxSnapAngle) return aAbove;
+			if (distBelow< distAbove && distBelow<maxSnapAngle) return aBelow;
 			return aM;
 		}
+
+		private static double getAngleDist(double a1, double a2) {
+			double d = Math.abs(a1-a2);
+			return Math.min(d, Math.PI*2-d);
+		}
 	}
 
 	static class PolyLineEditing extends LineFormEditing<Integer> implements PolyLine.HighlightListener {
@@ -571,7 +646,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 		
 		private void removePoint(int index) {
 			if (index<0 || index>=polyLine.points.size()) return;
-			polyLine.points.remove(index);
+			polyLine.removePoint(index);
 			polyLine.setHighlightedPoint(null);
 			cancelCellEditing();
 			pointListModel.fireTableRowRemoved(index);
@@ -622,6 +697,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 				case X: { double d=(double)aValue; if (Double.isNaN(d)) resetRow=true; else p.x=d; } break;
 				case Y: { double d=(double)aValue; if (Double.isNaN(d)) resetRow=true; else p.y=d; } break;
 				}
+				polyLine.pointChanged(rowIndex);
 				if (resetRow)
 					SwingUtilities.invokeLater(()->pointListModel.fireTableRowUpdate(rowIndex));
 				editorView.repaint();
@@ -657,18 +733,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 			double xu = viewState.convertPos_ScreenToAngle_LongX(x);
 			double yu = viewState.convertPos_ScreenToAngle_LatY (y);
 			double maxDist = viewState.convertLength_ScreenToLength(EditorView.MAX_NEAR_DISTANCE);
-			
-			Integer index = null;
-			double minDist = 0;
-			for (int i=0; i<polyLine.points.size(); i++) {
-				Form.PolyLine.Point p = polyLine.points.get(i);
-				double d = Math2.dist(p.x, p.y, xu, yu);
-				if (d<maxDist && (index==null || d<minDist)) {
-					minDist = d;
-					index = i;
-				}
-			}
-			return index;
+			return polyLine.findNearestPoint(xu, yu, maxDist);
 		}
 
 		@Override protected void  prepareDragging  (Integer selectedPoint) {}
@@ -678,6 +743,7 @@ abstract class LineFormEditing<HighlightedPointType> {
 		@Override protected void modifySelectedPoint(Integer selectedPoint, int x, int y, Point pickOffset) {
 			Form.PolyLine.Point p = polyLine.points.get(selectedPoint);
 			p.set( editorView.stickToGuides_px( x+pickOffset.x, y+pickOffset.y, isXFixed, isYFixed ) );
+			polyLine.pointChanged(selectedPoint);
 			pointListModel.fireTableRowUpdate(selectedPoint);
 		}
 		
@@ -0,0 +1,265 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Records the input of an editor view (mouse and key events, changes of the visible area and context menu actions) into a compact binary stream.
+ * <br><br>
+ * The header contains the size of the editor view and its visible area at the start of the recording, so a replay can start with the same view.
+ * Each entry starts with its type (1 byte) and the time since the previous entry in microseconds (varint), followed by its values.
+ * Integers are written as (zigzag) varints, so most mouse events take less than 10 bytes.
+ * Recordings can be read with {@link #read(InputStream, Consumer)}.
+ * <br><br>
+ * All recording methods have to be called on the event dispatch thread.
+ * If writing fails, the recording is stopped.
+ */
+class SessionRecorder
+{
+	private static final int   MAGIC = 0x4C455352; // "LESR"
+	private static final short VERSION = 2;
+
+	private static final byte TYPE_MOUSE = 1;
+	private static final byte TYPE_WHEEL = 2;
+	private static final byte TYPE_KEY   = 3;
+	private static final byte TYPE_VIEW  = 4;
+	private static final byte TYPE_MENU  = 5;
+
+	sealed interface Entry permits Mouse, Wheel, Key, View, MenuAction
+	{
+		/** @return time since start of the recording in microseconds */
+		long timeMicros();
+	}
+	record Mouse     (long timeMicros, int id, int x, int y, int button, int modifiersEx, int clickCount) implements Entry {}
+	record Wheel     (long timeMicros, int x, int y, int modifiersEx, int rotation) implements Entry {}
+	record Key       (long timeMicros, int id, int keyCode, char keyChar, int modifiersEx) implements Entry {}
+	record View      (long timeMicros, double x, double y, double width, double height) implements Entry {}
+	/** @param selected new state of a check box item or <code>null</code> for other items */
+	record MenuAction(long timeMicros, String text, Boolean selected) implements Entry {}
+
+	/** Size of the editor view (in pixels) and its visible area at the start of a recording. */
+	record Header(int width, int height, double viewX, double viewY, double viewWidth, double viewHeight) {}
+
+	private DataOutputStream out;
+	private final long startNanos;
+	private long lastMicros;
+	private double viewX, viewY, viewWidth, viewHeight;
+
+	/**
+	 * @param width  width of the editor view in pixels
+	 * @param height height of the editor view in pixels
+	 * @param view   visible area of the editor view
+	 */
+	SessionRecorder(OutputStream out, int width, int height, Rectangle2D view) throws IOException
+	{
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 1<<16));
+		this.out.writeInt(MAGIC);
+		this.out.writeShort(VERSION);
+		this.out.writeInt(width);
+		this.out.writeInt(height);
+		this.out.writeDouble(viewX      = view.getX     ());
+		this.out.writeDouble(viewY      = view.getY     ());
+		this.out.writeDouble(viewWidth  = view.getWidth ());
+		this.out.writeDouble(viewHeight = view.getHeight());
+		startNanos = System.nanoTime();
+		lastMicros = 0;
+	}
+
+	boolean isRecording()
+	{
+		return out!=null;
+	}
+
+	void close()
+	{
+		if (out==null) return;
+		try { out.close(); }
+		catch (IOException e) { System.err.printf("SessionRecorder: Can't close recording: %s%n", e); }
+		out = null;
+	}
+
+	void mouseEvent(MouseEvent e)
+	{
+		if (e instanceof MouseWheelEvent) { wheelEvent((MouseWheelEvent) e); return; }
+		if (!startEntry(TYPE_MOUSE)) return;
+		try
+		{
+			writeVarInt(e.getID());
+			writeVarInt(zigzag(e.getX()));
+			writeVarInt(zigzag(e.getY()));
+			writeVarInt(e.getButton());
+			writeVarInt(e.getModifiersEx());
+			writeVarInt(e.getClickCount());
+		}
+		catch (IOException ex) { failed(ex); }
+	}
+
+	private void wheelEvent(MouseWheelEvent e)
+	{
+		if (!startEntry(TYPE_WHEEL)) return;
+		try
+		{
+			writeVarInt(zigzag(e.getX()));
+			writeVarInt(zigzag(e.getY()));
+			writeVarInt(e.getModifiersEx());
+			writeVarInt(zigzag(e.getWheelRotation()));
+		}
+		catch (IOException ex) { failed(ex); }
+	}
+
+	void keyEvent(KeyEvent e)
+	{
+		if (!startEntry(TYPE_KEY)) return;
+		try
+		{
+			writeVarInt(e.getID());
+			writeVarInt(e.getKeyCode());
+			out.writeChar(e.getKeyChar());
+			writeVarInt(e.getModifiersEx());
+		}
+		catch (IOException ex) { failed(ex); }
+	}
+
+	/** Records the visible area, if it was changed since the last call. */
+	void viewChanged(Rectangle2D view)
+	{
+		if (out==null) return;
+		if (view.getX()==viewX && view.getY()==viewY && view.getWidth()==viewWidth && view.getHeight()==viewHeight) return;
+		viewX = view.getX(); viewWidth  = view.getWidth ();
+		viewY = view.getY(); viewHeight = view.getHeight();
+		if (!startEntry(TYPE_VIEW)) return;
+		try
+		{
+			out.writeDouble(viewX);
+			out.writeDouble(viewY);
+			out.writeDouble(viewWidth);
+			out.writeDouble(viewHeight);
+		}
+		catch (IOException ex) { failed(ex); }
+	}
+
+	void menuAction(String text, Boolean selected)
+	{
+		if (!startEntry(TYPE_MENU)) return;
+		try
+		{
+			out.writeUTF(text==null ? "" : text);
+			out.writeByte(selected==null ? -1 : selected ? 1 : 0);
+		}
+		catch (IOException ex) { failed(ex); }
+	}
+
+	private boolean startEntry(byte type)
+	{
+		if (out==null) return false;
+		long micros = (System.nanoTime()-startNanos)/1000;
+		try
+		{
+			out.writeByte(type);
+			writeVarInt(Math.max(0, micros-lastMicros));
+			lastMicros = micros;
+			return true;
+		}
+		catch (IOException ex) { failed(ex); return false; }
+	}
+
+	private void failed(IOException ex)
+	{
+		System.err.printf("SessionRecorder: Can't write recording, recording stopped: %s%n", ex);
+		close();
+	}
+
+	private void writeVarInt(long value) throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long zigzag(int value)
+	{
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// reading
+
+	/**
+	 * Reads a recording and passes all entries in order to <code>consumer</code>.
+	 * @return the header of the recording or <code>null</code>, if the recording has none (version 1)
+	 */
+	static Header read(InputStream in, Consumer<Entry> consumer) throws IOException
+	{
+		DataInputStream din = new DataInputStream(new BufferedInputStream(in, 1<<16));
+		if (din.readInt()!=MAGIC) throw new IOException("Not a session recording");
+		short version = din.readShort();
+		if (version<1 || version>VERSION) throw new IOException(String.format("Unsupported version %d of session recording", version));
+		Header header = null;
+		if (version>=2)
+			header = new Header(din.readInt(), din.readInt(), din.readDouble(), din.readDouble(), din.readDouble(), din.readDouble());
+
+		long micros = 0;
+		while (true)
+		{
+			int type = din.read();
+			if (type<0) break;
+			micros += readVarInt(din);
+			switch (type)
+			{
+			case TYPE_MOUSE:
+				consumer.accept(new Mouse(micros, (int) readVarInt(din), unzigzag(readVarInt(din)), unzigzag(readVarInt(din)), (int) readVarInt(din), (int) readVarInt(din), (int) readVarInt(din)));
+				break;
+			case TYPE_WHEEL:
+				consumer.accept(new Wheel(micros, unzigzag(readVarInt(din)), unzigzag(readVarInt(din)), (int) readVarInt(din), unzigzag(readVarInt(din))));
+				break;
+			case TYPE_KEY:
+				consumer.accept(new Key(micros, (int) readVarInt(din), (int) readVarInt(din), din.readChar(), (int) readVarInt(din)));
+				break;
+			case TYPE_VIEW:
+				consumer.accept(new View(micros, din.readDouble(), din.readDouble(), din.readDouble(), din.readDouble()));
+				break;
+			case TYPE_MENU:
+				String text = din.readUTF();
+				byte selected = din.readByte();
+				consumer.accept(new MenuAction(micros, text, selected<0 ? null : selected!=0));
+				break;
+			default:
+				throw new IOException(String.format("Unknown entry type %d in session recording", type));
+			}
+		}
+		return header;
+	}
+
+	private static long readVarInt(DataInputStream in) throws IOException
+	{
+		long value = 0;
+		for (int shift=0; shift<64; shift+=7)
+		{
+			int b = in.read();
+			if (b<0) throw new EOFException();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80)==0) return value;
+		}
+		throw new IOException("Corrupt varint in session recording");
+	}
+
+	private static int unzigzag(long value)
+	{
+		int v = (int) value;
+		return (v >>> 1) ^ -(v & 1);
+	}
+}
@@ -0,0 +1,249 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Math2;
+import net.schwarzbaer.java.tools.lineeditor.EditorView.GuideLine;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * Snaps positions to guide lines, form points and intersections of forms.
+ * <br><br>
+ * While a drag session is active (see {@link #startSession(LineForm[], GuideLinesStorage, IntersectionIndex.Points, LineForm, double, double, double, double, double)}),
+ * all candidates in the given area are collected once into sorted primitive arrays
+ * and each query is answered by binary search without allocating anything.
+ * Without a session, each query scans all guide lines and forms.
+ */
+class SnappingEngine
+{
+	private final Point2D.Double result = new Point2D.Double();
+
+	private boolean isSessionActive = false;
+	private double sessionMaxDist = Double.NaN;
+	private double[] verticalGuides   = new double[0];
+	private double[] horizontalGuides = new double[0];
+	private double[] pointsX = new double[0];
+	private double[] pointsY = new double[0];
+	private int pointCount = 0;
+	private double[] intersectionsX = new double[0];
+	private double[] intersectionsY = new double[0];
+	private int intersectionCount = 0;
+
+	// result of last candidate search
+	private boolean foundX, foundY, foundP;
+	private double guideX, guideXDist;
+	private double guideY, guideYDist;
+	private double pointX, pointY, pointDist;
+
+	boolean isSessionActive() { return isSessionActive; }
+	double getSessionMaxDist() { return sessionMaxDist; }
+
+	/**
+	 * Collects all guide lines, all points of <code>forms</code> and all <code>intersections</code> inside the given area.
+	 * Points and intersections of <code>excludedForm</code> are skipped.
+	 */
+	void startSession(LineForm<?>[] forms, GuideLinesStorage guideLines, IntersectionIndex.Points intersections, LineForm<?> excludedForm, double maxDist, double minX, double minY, double maxX, double maxY)
+	{
+		isSessionActive = true;
+		sessionMaxDist = maxDist;
+
+		int vCount = 0, hCount = 0;
+		if (guideLines!=null) {
+			verticalGuides   = new double[guideLines.guideLines.size()];
+			horizontalGuides = new double[guideLines.guideLines.size()];
+			for (GuideLine gl : guideLines.guideLines)
+				switch (gl.type) {
+				case Vertical  : verticalGuides  [vCount++] = gl.pos; break;
+				case Horizontal: horizontalGuides[hCount++] = gl.pos; break;
+				}
+		}
+		verticalGuides   = Arrays.copyOf(verticalGuides  , vCount);
+		horizontalGuides = Arrays.copyOf(horizontalGuides, hCount);
+		Arrays.sort(verticalGuides);
+		Arrays.sort(horizontalGuides);
+
+		pointCount = 0;
+		if (forms!=null)
+			for (LineForm<?> form : forms) {
+				if (form==excludedForm) continue;
+				form.forEachPoint((x,y)->{
+					if (x<minX || x>maxX || y<minY || y>maxY) return;
+					if (pointCount>=pointsX.length) {
+						int newLength = Math.max(16, pointsX.length*2);
+						pointsX = Arrays.copyOf(pointsX, newLength);
+						pointsY = Arrays.copyOf(pointsY, newLength);
+					}
+					pointsX[pointCount] = x;
+					pointsY[pointCount] = y;
+					pointCount++;
+				});
+			}
+		sortByX(pointsX, pointsY, 0, pointCount-1);
+
+		intersectionCount = 0;
+		if (intersections!=null) {
+			if (intersectionsX.length<intersections.size()) {
+				intersectionsX = new double[intersections.size()];
+				intersectionsY = new double[intersections.size()];
+			}
+			for (int i=0; i<intersections.size(); i++) {
+				double x = intersections.x(i);
+				double y = intersections.y(i);
+				if (x<minX || x>maxX || y<minY || y>maxY || intersections.involves(i, excludedForm)) continue;
+				intersectionsX[intersectionCount] = x;
+				intersectionsY[intersectionCount] = y;
+				intersectionCount++;
+			}
+		}
+		sortByX(intersectionsX, intersectionsY, 0, intersectionCount-1);
+	}
+
+	void endSession()
+	{
+		isSessionActive = false;
+		sessionMaxDist = Double.NaN;
+		pointCount = 0;
+		intersectionCount = 0;
+	}
+
+	/**
+	 * Snaps (<code>x</code>,<code>y</code>) to the nearest candidates of the active session.
+	 * @return the snapped position; this object is reused by the next call
+	 */
+	Point2D.Double stickToCandidates(double x, double y, boolean isXFixed, boolean isYFixed, double maxDist, boolean stickToGuideLines, boolean stickToFormPoints, boolean stickToIntersections)
+	{
+		Debug.Assert(isSessionActive);
+		foundX = foundY = foundP = false;
+		if (!isXFixed || !isYFixed) {
+			if (stickToGuideLines) {
+				int i = findNearest(verticalGuides, x);
+				if (i>=0 && Math.abs(verticalGuides[i]-x)<=maxDist) { foundX = true; guideX = verticalGuides[i]; guideXDist = Math.abs(guideX-x); }
+				i = findNearest(horizontalGuides, y);
+				if (i>=0 && Math.abs(horizontalGuides[i]-y)<=maxDist) { foundY = true; guideY = horizontalGuides[i]; guideYDist = Math.abs(guideY-y); }
+			}
+			if (stickToFormPoints   ) findNearestPoint(pointsX, pointsY, pointCount, x, y, maxDist);
+			if (stickToIntersections) findNearestPoint(intersectionsX, intersectionsY, intersectionCount, x, y, maxDist);
+		}
+		return computeResult(x, y, isXFixed, isYFixed);
+	}
+
+	private void findNearestPoint(double[] xs, double[] ys, int count, double x, double y, double maxDist)
+	{
+		int i = lowerBound(xs, count, x-maxDist);
+		for (; i<count && xs[i]<=x+maxDist; i++) {
+			if (Math.abs(ys[i]-y)>=maxDist) continue;
+			checkPoint(xs[i], ys[i], x, y, maxDist);
+		}
+	}
+
+	private void checkPoint(double xP, double yP, double x, double y, double maxDist)
+	{
+		double d = Math2.dist(xP,yP,x,y);
+		if (d<maxDist && (!foundP || d<pointDist)) { foundP = true; pointDist = d; pointX = xP; pointY = yP; }
+	}
+
+	/**
+	 * Snaps (<code>x</code>,<code>y</code>) by scanning all guide lines and forms (no active session needed).
+	 * @return the snapped position; this object is reused by the next call
+	 */
+	Point2D.Double stickToAll(double x, double y, boolean isXFixed, boolean isYFixed, double maxDist, boolean stickToGuideLines, boolean stickToFormPoints, boolean stickToIntersections, LineForm<?>[] forms, GuideLinesStorage guideLines, IntersectionIndex.Points intersections, LineForm<?> excludedForm)
+	{
+		foundX = foundY = foundP = false;
+		if (!isXFixed || !isYFixed) {
+			if (stickToGuideLines && guideLines!=null)
+				for (GuideLine gl : guideLines.guideLines)
+					switch (gl.type) {
+					case Vertical: {
+						double d = Math.abs(gl.pos-x);
+						if (d<=maxDist && (!foundX || guideXDist>d)) { foundX = true; guideXDist = d; guideX = gl.pos; }
+					} break;
+					case Horizontal: {
+						double d = Math.abs(gl.pos-y);
+						if (d<=maxDist && (!foundY || guideYDist>d)) { foundY = true; guideYDist = d; guideY = gl.pos; }
+					} break;
+					}
+			if (stickToFormPoints && forms!=null)
+				for (LineForm<?> form : forms) {
+					if (form==excludedForm) continue;
+					form.forEachPoint((xP,yP)->checkPoint(xP, yP, x, y, maxDist));
+				}
+			if (stickToIntersections && intersections!=null)
+				for (int i=0; i<intersections.size(); i++)
+					if (!intersections.involves(i, excludedForm))
+						checkPoint(intersections.x(i), intersections.y(i), x, y, maxDist);
+		}
+		return computeResult(x, y, isXFixed, isYFixed);
+	}
+
+	private Point2D.Double computeResult(double x, double y, boolean isXFixed, boolean isYFixed)
+	{
+		if (!isXFixed && !isYFixed && foundP &&
+			( !foundX || pointDist<=guideXDist || isNear(pointX,guideX, pointDist/20) ) &&
+			( !foundY || pointDist<=guideYDist || isNear(pointY,guideY, pointDist/20) )
+		) {
+			x = pointX;
+			y = pointY;
+		}
+		else
+		{
+			if (!isXFixed && foundX) x = guideX;
+			if (!isYFixed && foundY) y = guideY;
+		}
+		result.setLocation(x, y);
+		return result;
+	}
+
+	private static boolean isNear(double val1, double val2, double threshold)
+	{
+		return Math.abs(val1-val2) < threshold;
+	}
+
+	/** @return index of the value in sorted <code>arr</code>, that is nearest to <code>val</code>, or -1, if <code>arr</code> is empty */
+	private static int findNearest(double[] arr, double val)
+	{
+		if (arr.length==0) return -1;
+		int i = lowerBound(arr, arr.length, val);
+		if (i>=arr.length) return arr.length-1;
+		if (i>0 && val-arr[i-1] < arr[i]-val) return i-1;
+		return i;
+	}
+
+	/** @return first index in sorted <code>arr[0..length-1]</code> with <code>arr[index]&gt;=val</code> */
+	private static int lowerBound(double[] arr, int length, double val)
+	{
+		int lo = 0, hi = length;
+		while (lo<hi) {
+			int mid = (lo+hi)>>>1;
+			if (arr[mid]<val) lo = mid+1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/** sorts both arrays by values of <code>xs</code> */
+	private static void sortByX(double[] xs, double[] ys, int lo, int hi)
+	{
+		while (hi-lo > 16) {
+			double pivot = xs[(lo+hi)>>>1];
+			int i = lo, j = hi;
+			while (i<=j) {
+				while (xs[i]<pivot) i++;
+				while (xs[j]>pivot) j--;
+				if (i<=j) { swap(xs, ys, i, j); i++; j--; }
+			}
+			if (j-lo < hi-i) { sortByX(xs, ys, lo, j); lo = i; }
+			else             { sortByX(xs, ys, i, hi); hi = j; }
+		}
+		for (int i=lo+1; i<=hi; i++)
+			for (int j=i; j>lo && xs[j-1]>xs[j]; j--)
+				swap(xs, ys, j-1, j);
+	}
+
+	private static void swap(double[] xs, double[] ys, int i, int j)
+	{
+		double t;
+		t = xs[i]; xs[i] = xs[j]; xs[j] = t;
+		t = ys[i]; ys[i] = ys[j]; ys[j] = t;
+	}
+}
@@ -0,0 +1,159 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.lib.image.linegeometry.Math2;
+
+/**
+ * Uniform grid over the points of a polyline to find the nearest point without scanning all points.
+ * <br><br>
+ * The grid is built for the bounding box of the points at build time.
+ * Points, that are moved outside of this box later, are stored in the nearest border cell.
+ * The grid stores point indices, so it has to be rebuilt, if points are inserted or removed.
+ */
+class VertexGrid
+{
+	private static final int POINTS_PER_CELL = 4;
+
+	private final List<? extends Form.PolyLine.Point> points;
+	private final double minX, minY, cellSize;
+	private final int cellsX, cellsY;
+	private final int[][] cellItems;
+	private final int[] cellCounts;
+	private final int[] cellOfPoint;
+
+	VertexGrid(List<? extends Form.PolyLine.Point> points)
+	{
+		this.points = points;
+		int n = points.size();
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Form.PolyLine.Point p : points)
+		{
+			minX = Math.min(minX, p.x); maxX = Math.max(maxX, p.x);
+			minY = Math.min(minY, p.y); maxY = Math.max(maxY, p.y);
+		}
+		if (n==0) { minX = minY = maxX = maxY = 0; }
+		this.minX = minX;
+		this.minY = minY;
+
+		double size = Math.max(maxX-minX, maxY-minY) / Math.max(1, Math.sqrt(n/(double)POINTS_PER_CELL));
+		cellSize = size>0 && Double.isFinite(size) ? size : 1;
+		cellsX = (int) Math.min(Math.max(1, n), (maxX-minX)/cellSize + 1);
+		cellsY = (int) Math.min(Math.max(1, n), (maxY-minY)/cellSize + 1);
+
+		cellItems = new int[cellsX*cellsY][];
+		cellCounts = new int[cellsX*cellsY];
+		cellOfPoint = new int[n];
+		for (int i=0; i<n; i++)
+		{
+			Form.PolyLine.Point p = points.get(i);
+			int cell = getCell(p.x, p.y);
+			cellOfPoint[i] = cell;
+			addToCell(cell, i);
+		}
+	}
+
+	int size()
+	{
+		return cellOfPoint.length;
+	}
+
+	/**
+	 * Moves point <code>index</code> to the cell of its current position.
+	 */
+	void pointChanged(int index)
+	{
+		Form.PolyLine.Point p = points.get(index);
+		int newCell = getCell(p.x, p.y);
+		int oldCell = cellOfPoint[index];
+		if (newCell==oldCell) return;
+
+		int[] items = cellItems[oldCell];
+		int count = cellCounts[oldCell];
+		for (int i=0; i<count; i++)
+			if (items[i]==index)
+			{
+				items[i] = items[count-1];
+				cellCounts[oldCell]--;
+				break;
+			}
+		cellOfPoint[index] = newCell;
+		addToCell(newCell, index);
+	}
+
+	/**
+	 * @return index of the point nearest to (<code>x</code>,<code>y</code>) with a distance less than <code>maxDist</code>
+	 *         (the lowest index, if several points have the same distance), or <code>null</code>
+	 */
+	Integer findNearest(double x, double y, double maxDist)
+	{
+		int cx0 = getCellX(x-maxDist), cx1 = getCellX(x+maxDist);
+		int cy0 = getCellY(y-maxDist), cy1 = getCellY(y+maxDist);
+
+		int index = -1;
+		double minDist = 0;
+		if ((cx1-cx0+1)*(long)(cy1-cy0+1) > cellOfPoint.length)
+		{
+			// search area covers more cells than points
+			for (int i=0; i<cellOfPoint.length; i++)
+			{
+				Form.PolyLine.Point p = points.get(i);
+				double d = Math2.dist(p.x, p.y, x, y);
+				if (d<maxDist && (index<0 || d<minDist)) { minDist = d; index = i; }
+			}
+		}
+		else
+			for (int cx=cx0; cx<=cx1; cx++)
+				for (int cy=cy0; cy<=cy1; cy++)
+				{
+					int cell = cx+cy*cellsX;
+					int[] items = cellItems[cell];
+					for (int j=0; j<cellCounts[cell]; j++)
+					{
+						int i = items[j];
+						Form.PolyLine.Point p = points.get(i);
+						double d = Math2.dist(p.x, p.y, x, y);
+						if (d<maxDist && (index<0 || d<minDist || (d==minDist && i<index))) { minDist = d; index = i; }
+					}
+				}
+		return index<0 ? null : index;
+	}
+
+	private void addToCell(int cell, int index)
+	{
+		int[] items = cellItems[cell];
+		int count = cellCounts[cell];
+		if (items==null)
+			cellItems[cell] = items = new int[POINTS_PER_CELL];
+		else if (count>=items.length)
+			cellItems[cell] = items = Arrays.copyOf(items, items.length*2);
+		items[count] = index;
+		cellCounts[cell] = count+1;
+	}
+
+	private int getCell(double x, double y)
+	{
+		return getCellX(x) + getCellY(y)*cellsX;
+	}
+
+	private int getCellX(double x)
+	{
+		return clamp((x-minX)/cellSize, cellsX);
+	}
+
+	private int getCellY(double y)
+	{
+		return clamp((y-minY)/cellSize, cellsY);
+	}
+
+	private static int clamp(double cell, int cellCount)
+	{
+		if (!(cell>0)) return 0; // also NaN
+		if (cell>=cellCount) return cellCount-1;
+		return (int) cell;
+	}
+}
@@ -0,0 +1,182 @@
+package net.schwarzbaer.java.tools.lineeditor;
+
+import java.util.Random;
+
+import net.schwarzbaer.java.lib.image.linegeometry.Form;
+import net.schwarzbaer.java.tools.lineeditor.LineEditor.GuideLinesStorage;
+
+/**
+ * Generates reproducible synthetic documents to reproduce performance problems with large drawings.
+ * <br><br>
+ * Forms are placed in clusters with a gaussian spread around random centers (or uniformly, if there are no clusters).
+ * Polyline lengths follow a log-normal distribution with the given median, so there are a few very long polylines.
+ * The document area grows with the number of forms, so the density of forms stays the same for all sizes.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * Form[] forms = new WorkloadGenerator(42).setArcDensity(0.3).setClusters(20, 0.05).generateForms(100000);
+ * </pre>
+ */
+public class WorkloadGenerator
+{
+	private static final double AREA_PER_FORM = 100*100;
+
+	private final long seed;
+	private final Form.Factory factory;
+	private double arcDensity;
+	private double lineDensity;
+	private int polyLineMedianLength;
+	private double polyLineLengthSigma;
+	private int maxPolyLineLength;
+	private double segmentLength;
+	private int clusterCount;
+	private double clusterSpread;
+
+	public WorkloadGenerator(long seed)
+	{
+		this(seed, LineEditor.createFormFactory());
+	}
+
+	public WorkloadGenerator(long seed, Form.Factory factory)
+	{
+		this.seed = seed;
+		this.factory = factory;
+		arcDensity = 0.2;
+		lineDensity = 0.4;
+		polyLineMedianLength = 8;
+		polyLineLengthSigma = 1;
+		maxPolyLineLength = 100000;
+		segmentLength = 10;
+		clusterCount = 0;
+		clusterSpread = 0;
+	}
+
+	/** Sets the fractions of arcs and lines (0..1). All other forms are polylines. */
+	public WorkloadGenerator setFormMix(double arcDensity, double lineDensity)
+	{
+		if (arcDensity<0 || lineDensity<0 || arcDensity+lineDensity>1)
+			throw new IllegalArgumentException(String.format("Invalid form mix: arcs %s, lines %s", arcDensity, lineDensity));
+		this.arcDensity = arcDensity;
+		this.lineDensity = lineDensity;
+		return this;
+	}
+
+	public WorkloadGenerator setArcDensity(double arcDensity)
+	{
+		return setFormMix(arcDensity, Math.min(lineDensity, 1-arcDensity));
+	}
+
+	/**
+	 * @param medianLength median number of points of a polyline (at least 2)
+	 * @param sigma        standard deviation of the logarithm of the length (0 = all polylines have <code>medianLength</code> points)
+	 * @param maxLength    upper limit of the number of points
+	 */
+	public WorkloadGenerator setPolyLineLength(int medianLength, double sigma, int maxLength)
+	{
+		if (medianLength<2 || maxLength<medianLength || sigma<0)
+			throw new IllegalArgumentException(String.format("Invalid polyline length: median %d, sigma %s, max %d", medianLength, sigma, maxLength));
+		polyLineMedianLength = medianLength;
+		polyLineLengthSigma = sigma;
+		maxPolyLineLength = maxLength;
+		return this;
+	}
+
+	/** Sets the mean distance between consecutive points of a polyline. */
+	public WorkloadGenerator setSegmentLength(double segmentLength)
+	{
+		this.segmentLength = segmentLength;
+		return this;
+	}
+
+	/**
+	 * @param clusterCount number of clusters (0 = uniform distribution)
+	 * @param spread       standard deviation of a cluster relative to the width of the document area
+	 */
+	public WorkloadGenerator setClusters(int clusterCount, double spread)
+	{
+		if (clusterCount<0 || spread<0)
+			throw new IllegalArgumentException(String.format("Invalid clusters: count %d, spread %s", clusterCount, spread));
+		this.clusterCount = clusterCount;
+		this.clusterSpread = spread;
+		return this;
+	}
+
+	/** @return width (and height) of the document area for <code>formCount</code> forms */
+	public static double getAreaSize(int formCount)
+	{
+		return Math.sqrt(Math.max(1, formCount)*AREA_PER_FORM);
+	}
+
+	public Form[] generateForms(int formCount)
+	{
+		Random rnd = new Random(seed);
+		double size = getAreaSize(formCount);
+		double[] clusterX = new double[clusterCount];
+		double[] clusterY = new double[clusterCount];
+		for (int i=0; i<clusterCount; i++)
+		{
+			clusterX[i] = rnd.nextDouble()*size;
+			clusterY[i] = rnd.nextDouble()*size;
+		}
+
+		Form[] forms = new Form[formCount];
+		for (int i=0; i<formCount; i++)
+		{
+			double x, y;
+			if (clusterCount>0)
+			{
+				int c = rnd.nextInt(clusterCount);
+				x = clusterX[c] + rnd.nextGaussian()*clusterSpread*size;
+				y = clusterY[c] + rnd.nextGaussian()*clusterSpread*size;
+			}
+			else
+			{
+				x = rnd.nextDouble()*size;
+				y = rnd.nextDouble()*size;
+			}
+
+			double type = rnd.nextDouble();
+			if (type<arcDensity)
+			{
+				double aStart = rnd.nextDouble()*2*Math.PI;
+				forms[i] = factory.createArc(new double[] { x, y, segmentLength*(0.5+rnd.nextDouble()*4), aStart, aStart+(0.1+rnd.nextDouble()*0.9)*2*Math.PI });
+			}
+			else if (type<arcDensity+lineDensity)
+			{
+				double angle = rnd.nextDouble()*2*Math.PI;
+				double length = segmentLength*(0.5+rnd.nextDouble()*5);
+				forms[i] = factory.createLine(new double[] { x, y, x+length*Math.cos(angle), y+length*Math.sin(angle) });
+			}
+			else
+			{
+				int length = (int) Math.round(polyLineMedianLength*Math.exp(rnd.nextGaussian()*polyLineLengthSigma));
+				double[] values = new double[2*Math.max(2, Math.min(maxPolyLineLength, length))];
+				double angle = rnd.nextDouble()*2*Math.PI;
+				for (int p=0; p<values.length; p+=2)
+				{
+					values[p] = x; values[p+1] = y;
+					angle += rnd.nextGaussian()*0.5; // smooth random walk
+					double step = segmentLength*(0.5+rnd.nextDouble());
+					x += step*Math.cos(angle);
+					y += step*Math.sin(angle);
+				}
+				forms[i] = factory.createPolyLine(values);
+			}
+		}
+		return forms;
+	}
+
+	/** @return <code>count</code> guide lines (alternating vertical and horizontal) in the document area of <code>formCount</code> forms */
+	public GuideLinesStorage generateGuideLines(int count, int formCount)
+	{
+		Random rnd = new Random(seed+1);
+		double size = getAreaSize(formCount);
+		double[] vertical   = new double[(count+1)/2];
+		double[] horizontal = new double[count/2];
+		for (int i=0; i<vertical  .length; i++) vertical  [i] = rnd.nextDouble()*size;
+		for (int i=0; i<horizontal.length; i++) horizontal[i] = rnd.nextDouble()*size;
+		GuideLinesStorage storage = new GuideLinesStorage();
+		storage.setDefaultGuideLines(vertical, horizontal);
+		return storage;
+	}
+}